@@ -0,0 +1,71 @@
+package com.videoplayer;
+
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks the PCM ring between VLC's audio thread and the OpenAL pump with a
+// synthetic 48 kHz stereo tone, so it runs without VLC or a sound device. One
+// operation is one 10 ms block offered by the writer or taken by the reader; the
+// writer drops a block instead of waiting whenever the ring is full.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class AudioRingBenchmark {
+    // GameAudioOutput's format: 48 kHz, 16-bit stereo
+    private static final int RATE = 48000;
+    private static final int BLOCK_BYTES = RATE / 100 * 4;
+
+    private PcmRingBuffer ring;
+    private long tone;
+    private long output;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ring = new PcmRingBuffer(RATE * 4);
+        tone = MemoryUtil.nmemAlloc(BLOCK_BYTES);
+        output = MemoryUtil.nmemAlloc(BLOCK_BYTES);
+        // 440 Hz, the same sample on both channels
+        for (int i = 0; i < BLOCK_BYTES / 4; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * 440 * i / RATE) * Short.MAX_VALUE / 2);
+            MemoryUtil.memPutShort(tone + i * 4L, sample);
+            MemoryUtil.memPutShort(tone + i * 4L + 2, sample);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MemoryUtil.nmemFree(tone);
+        MemoryUtil.nmemFree(output);
+        ring.free();
+    }
+
+    // What play() does on VLC's audio thread
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean write() {
+        return ring.write(tone, BLOCK_BYTES);
+    }
+
+    // What the pump does before handing a block to OpenAL
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public int read() {
+        return ring.read(output, BLOCK_BYTES);
+    }
+}
@@ -0,0 +1,164 @@
+package com.videoplayer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks the frame path with synthetic frames, so it runs without VLC or Minecraft.
+// One operation is one video frame: thrpt is frames/ms, avgt is ms/frame, and the gc
+// profiler's gc.alloc.rate.norm is bytes allocated per frame.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class FramePipelineBenchmark {
+    @Param({"1280x720", "1920x1080", "2560x1440", "3840x2160"})
+    public String resolution;
+
+    private int width;
+    private int height;
+
+    // Stand-ins for VLC's native buffer, the old videoBuffer and the NativeImage pixels
+    private ByteBuffer decoderBuffer;
+    private ByteBuffer videoBuffer;
+    private ByteBuffer imagePixels;
+    private long imageAddress;
+
+    private FrameMailbox mailbox;
+    private DirtyRegionTracker dirtyRegions;
+    private int frameCounter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] parts = resolution.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        int bytes = width * height * 4;
+
+        decoderBuffer = MemoryUtil.memAlignedAlloc(64, bytes);
+        videoBuffer = BufferUtils.createByteBuffer(bytes);
+        imagePixels = MemoryUtil.memAlignedAlloc(64, bytes);
+        imageAddress = MemoryUtil.memAddress0(imagePixels);
+
+        // Noise rather than zeros so nothing can shortcut on uniform data
+        byte[] noise = new byte[bytes];
+        new Random(42).nextBytes(noise);
+        decoderBuffer.put(noise).clear();
+
+        mailbox = new FrameMailbox();
+        dirtyRegions = new DirtyRegionTracker();
+        dirtyRegions.setEnabled(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mailbox.release();
+        MemoryUtil.memAlignedFree(decoderBuffer);
+        MemoryUtil.memAlignedFree(imagePixels);
+    }
+
+    // Original RenderCallback.display(): ByteBuffer.put() into the shared videoBuffer
+    @Benchmark
+    public ByteBuffer displayCopyLegacy() {
+        videoBuffer.clear();
+        decoderBuffer.rewind();
+        videoBuffer.put(decoderBuffer);
+        videoBuffer.rewind();
+        return videoBuffer;
+    }
+
+    // Copying display() path: memcpy into the mailbox back slot and publish
+    @Benchmark
+    public FrameMailbox.Frame displayCopyMailbox() {
+        FrameMailbox.Frame frame = mailbox.beginWrite(width, height, FrameConverter.CHROMA_BGRA);
+        MemoryUtil.memCopy(MemoryUtil.memAddress0(decoderBuffer), frame.getAddress(), frame.getByteSize());
+        mailbox.publish();
+        return mailbox.acquireLatest();
+    }
+
+    // Original updateTexture(): four get() calls and a bounds-checked setColor per pixel
+    @Benchmark
+    public void swizzleLegacy() {
+        decoderBuffer.rewind();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int b = decoderBuffer.get() & 0xFF;
+                int g = decoderBuffer.get() & 0xFF;
+                int r = decoderBuffer.get() & 0xFF;
+                int a = decoderBuffer.get() & 0xFF;
+
+                int color = (a << 24) | (b << 16) | (g << 8) | r;
+                setColor(x, y, color);
+            }
+        }
+    }
+
+    // Mirrors NativeImage.setColor: bounds check, then a single native store
+    private void setColor(int x, int y, int color) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("(" + x + ", " + y + ") outside of image bounds");
+        }
+        MemoryUtil.memPutInt(imageAddress + ((long) x + (long) y * width) * 4L, color);
+    }
+
+    @Benchmark
+    public void swizzleWordKernel() {
+        FrameConverter.convert(decoderBuffer, imageAddress, width, height, true);
+    }
+
+    @Benchmark
+    public void swizzleScalarFallback() {
+        FrameConverter.convertScalar(decoderBuffer, 0, imageAddress, (long) width * height * 4, true);
+    }
+
+    // RGBA chroma from VLC: conversion is a plain copy
+    @Benchmark
+    public void rgbaCopy() {
+        FrameConverter.convert(decoderBuffer, imageAddress, width, height, false);
+    }
+
+    // Original getBufferFormat(): a fresh direct buffer every time the format is negotiated
+    @Benchmark
+    public ByteBuffer bufferFormatAllocationLegacy() {
+        return BufferUtils.createByteBuffer(width * height * 4);
+    }
+
+    // Mailbox slots are reused as long as the frame doesn't grow
+    @Benchmark
+    public FrameMailbox.Frame bufferFormatAllocationMailbox() {
+        return mailbox.beginWrite(width, height, FrameConverter.CHROMA_BGRA);
+    }
+
+    // Tile hashing on a frame that never changes (slides, paused screen recordings)
+    @Benchmark
+    public DirtyRegionTracker.Result dirtyRegionsStatic() {
+        return dirtyRegions.analyze(MemoryUtil.memAddress0(decoderBuffer), width, height);
+    }
+
+    // Tile hashing when one small area changes every frame (a cursor or a clock)
+    @Benchmark
+    public void dirtyRegionsSmallChange(Blackhole blackhole) {
+        long address = MemoryUtil.memAddress0(decoderBuffer);
+        MemoryUtil.memPutInt(address + ((long) (height / 2) * width + width / 2) * 4L, frameCounter++);
+        blackhole.consume(dirtyRegions.analyze(address, width, height));
+        for (int i = 0; i < dirtyRegions.getRectCount(); i++) {
+            FrameConverter.convertRect(decoderBuffer, imageAddress, width, dirtyRegions.getRectX(i), dirtyRegions.getRectY(i),
+                dirtyRegions.getRectWidth(i), dirtyRegions.getRectHeight(i), true);
+        }
+    }
+}
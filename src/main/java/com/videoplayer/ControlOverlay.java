@@ -0,0 +1,208 @@
+package com.videoplayer;
+
+import com.videoplayer.mixin.NativeImageAccessor;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.util.Identifier;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Retained-mode HUD controls: the play/pause button, seek bar and time label are
+// rasterized into one video-sized texture, one texel per GUI pixel, and drawn as a
+// single quad. The texture is only redrawn and uploaded when what it shows changes:
+// the hovered control, play state, size, or the playback time, which is shown to the
+// second. Between those changes a frame costs one drawTexture call.
+public class ControlOverlay {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BUTTON = 0x99000000;
+    private static final int BUTTON_HOVERED = 0xCC000000;
+    private static final int TRACK = 0x80000000;
+    private static final int PLAYED = 0xFFFF4040;
+    private static final int LABEL = 0xAA000000;
+
+    // 3x5 bitmap glyphs for the time label, one row per entry, high bit on the left
+    private static final String GLYPH_CHARS = "0123456789:/";
+    private static final int[][] GLYPHS = {
+        {0b111, 0b101, 0b101, 0b101, 0b111},
+        {0b010, 0b110, 0b010, 0b010, 0b111},
+        {0b111, 0b001, 0b111, 0b100, 0b111},
+        {0b111, 0b001, 0b111, 0b001, 0b111},
+        {0b101, 0b101, 0b111, 0b001, 0b001},
+        {0b111, 0b100, 0b111, 0b001, 0b111},
+        {0b111, 0b100, 0b111, 0b101, 0b111},
+        {0b111, 0b001, 0b010, 0b010, 0b010},
+        {0b111, 0b101, 0b111, 0b101, 0b111},
+        {0b111, 0b101, 0b111, 0b001, 0b111},
+        {0b000, 0b010, 0b000, 0b010, 0b000},
+        {0b001, 0b001, 0b010, 0b100, 0b100},
+    };
+    // GUI pixels per glyph pixel
+    private static final int GLYPH_SCALE = 2;
+    private static final int GLYPH_ADVANCE = 4 * GLYPH_SCALE;
+
+    private final HudControlsLayout layout;
+    private final Identifier identifier = Identifier.of(VideoPlayerMod.MOD_ID, "hud_controls_" + NEXT_ID.getAndIncrement());
+    private NativeImageBackedTexture texture;
+    private long pixels;
+
+    // What the texture currently shows
+    private HudControlsLayout.Control drawnHover;
+    private boolean drawnPlaying;
+    private long drawnSecond = -1;
+    private long drawnLengthSecond = -1;
+
+    public ControlOverlay(HudControlsLayout layout) {
+        this.layout = layout;
+    }
+
+    // Render thread; layout must be up to date for the video's current size
+    public void draw(DrawContext context, int x, int y, VideoPlayer videoPlayer, HudControlsLayout.Control hovered) {
+        int width = layout.getWidth();
+        int height = layout.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        boolean resized = texture == null || texture.getImage() == null
+            || texture.getImage().getWidth() != width || texture.getImage().getHeight() != height;
+        if (resized) {
+            createTexture(width, height);
+        }
+
+        boolean playing = videoPlayer.isPlaying();
+        long second = videoPlayer.getTimeMillis() / 1000;
+        long lengthSecond = videoPlayer.getLengthMillis() / 1000;
+        if (resized || hovered != drawnHover || playing != drawnPlaying
+            || second != drawnSecond || lengthSecond != drawnLengthSecond) {
+            drawnHover = hovered;
+            drawnPlaying = playing;
+            drawnSecond = second;
+            drawnLengthSecond = lengthSecond;
+            rasterize(width, height, hovered, playing, second, lengthSecond);
+            texture.upload();
+        }
+
+        context.drawTexture(RenderLayer::getGuiTextured, identifier, x, y, 0.0f, 0.0f, width, height, width, height);
+    }
+
+    private void createTexture(int width, int height) {
+        close();
+        NativeImage image = new NativeImage(NativeImage.Format.RGBA, width, height, true);
+        pixels = ((NativeImageAccessor) (Object) image).getPointer();
+        texture = new NativeImageBackedTexture(identifier::toString, image);
+        MinecraftClient.getInstance().getTextureManager().registerTexture(identifier, texture);
+    }
+
+    private void rasterize(int width, int height, HudControlsLayout.Control hovered, boolean playing, long second, long lengthSecond) {
+        MemoryUtil.memSet(pixels, 0, (long) width * height * 4);
+
+        // Play/pause button
+        int buttonX = layout.playPauseX();
+        int buttonY = layout.playPauseY();
+        int size = HudControlsLayout.PLAY_PAUSE_SIZE;
+        fill(buttonX, buttonY, size, size, hovered == HudControlsLayout.Control.PLAY_PAUSE ? BUTTON_HOVERED : BUTTON);
+        border(buttonX, buttonY, size, size, WHITE);
+
+        int symbolX = buttonX + size / 2;
+        int symbolY = buttonY + size / 2;
+        int symbolSize = size / 3;
+        if (playing) {
+            int barWidth = symbolSize / 3;
+            fill(symbolX - symbolSize / 2, symbolY - symbolSize, barWidth, symbolSize * 2, WHITE);
+            fill(symbolX + symbolSize / 2 - barWidth, symbolY - symbolSize, barWidth, symbolSize * 2, WHITE);
+        } else {
+            for (int i = 0; i < symbolSize; i++) {
+                int lineHeight = i * 2;
+                fill(symbolX - symbolSize / 2 + i, symbolY - lineHeight / 2, 1, lineHeight, WHITE);
+            }
+        }
+
+        if (!layout.hasSeekBar()) {
+            return;
+        }
+
+        // Seek bar, advanced once a second with the label
+        int barX = layout.seekBarX();
+        int barY = layout.seekBarY();
+        int barWidth = layout.seekBarWidth();
+        int barHeight = HudControlsLayout.SEEK_BAR_HEIGHT;
+        int played = lengthSecond > 0 ? (int) (barWidth * Math.min(1.0, (double) second / lengthSecond)) : 0;
+        boolean barHovered = hovered == HudControlsLayout.Control.SEEK_BAR;
+        fill(barX, barY, barWidth, barHeight, TRACK);
+        fill(barX, barY, played, barHeight, PLAYED);
+        fill(barX + played - 1, barY - (barHovered ? 2 : 1), 2, barHeight + (barHovered ? 4 : 2), WHITE);
+
+        // Time label
+        String label = formatTime(second) + "/" + formatTime(lengthSecond);
+        int labelX = layout.labelX();
+        int labelY = layout.labelY();
+        fill(labelX, labelY, label.length() * GLYPH_ADVANCE + 2 * GLYPH_SCALE, HudControlsLayout.LABEL_HEIGHT, LABEL);
+        int glyphY = labelY + (HudControlsLayout.LABEL_HEIGHT - 5 * GLYPH_SCALE) / 2;
+        for (int i = 0; i < label.length(); i++) {
+            glyph(label.charAt(i), labelX + 2 * GLYPH_SCALE + i * GLYPH_ADVANCE, glyphY);
+        }
+    }
+
+    private static String formatTime(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private void glyph(char c, int x, int y) {
+        int index = GLYPH_CHARS.indexOf(c);
+        if (index < 0) {
+            return;
+        }
+        int[] rows = GLYPHS[index];
+        for (int row = 0; row < rows.length; row++) {
+            for (int column = 0; column < 3; column++) {
+                if ((rows[row] & (0b100 >> column)) != 0) {
+                    fill(x + column * GLYPH_SCALE, y + row * GLYPH_SCALE, GLYPH_SCALE, GLYPH_SCALE, WHITE);
+                }
+            }
+        }
+    }
+
+    private void border(int x, int y, int width, int height, int argb) {
+        fill(x, y, width, 1, argb);
+        fill(x, y + height - 1, width, 1, argb);
+        fill(x, y, 1, height, argb);
+        fill(x + width - 1, y, 1, height, argb);
+    }
+
+    // Overwrites, clipped to the texture; later fills cover earlier ones like context.fill would for opaque colors
+    private void fill(int x, int y, int width, int height, int argb) {
+        int textureWidth = layout.getWidth();
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int x1 = Math.min(textureWidth, x + width);
+        int y1 = Math.min(layout.getHeight(), y + height);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        // NativeImage RGBA is R, G, B, A in memory: ABGR as a little-endian int
+        int abgr = (argb & 0xFF00FF00) | ((argb >> 16) & 0xFF) | ((argb & 0xFF) << 16);
+        for (int row = y0; row < y1; row++) {
+            long address = pixels + ((long) row * textureWidth + x0) * 4;
+            for (int column = x0; column < x1; column++, address += 4) {
+                MemoryUtil.memPutInt(address, abgr);
+            }
+        }
+    }
+
+    public void close() {
+        if (texture != null) {
+            MinecraftClient.getInstance().getTextureManager().destroyTexture(identifier);
+            texture = null;
+            pixels = 0;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.videoplayer;
+
+// Picks the resolution VLC should decode at from the size the video is actually drawn at.
+// Views report their on-screen size in real pixels; the negotiator snaps that to a fixed
+// set of height buckets and only moves to a new bucket once it has been stable for a while,
+// so dragging a resize corner doesn't restart the decoder on every mouse event.
+public class DecodeSizeNegotiator {
+    private static final int[] HEIGHT_BUCKETS = {144, 240, 360, 480, 540, 720, 900, 1080, 1440, 2160, 4320};
+
+    private static final long EVALUATE_INTERVAL_NANOS = 100_000_000L;
+    private static final long GROW_SETTLE_NANOS = 250_000_000L;
+    private static final long SHRINK_SETTLE_NANOS = 1_500_000_000L;
+
+    // A smaller bucket must fit the view with this much room to spare before we shrink
+    private static final double SHRINK_MARGIN = 1.15;
+
+    private volatile boolean enabled = !"false".equals(System.getProperty("videoplayer.scaleDecode"));
+
+    // Written by the VLC thread in getBufferFormat
+    private volatile int sourceWidth = 1920;
+    private volatile int sourceHeight = 1080;
+
+    // Bucket the decoder should use, 0 while nothing has been drawn yet
+    private volatile int targetHeight = 0;
+
+    // Height the decoder last started at, written by the VLC thread in getBufferFormat
+    private volatile int decodingHeight = 0;
+
+    // Playback profile's upper limit, 0 for none
+    private volatile int maxHeight = 0;
+
+    // Render thread only
+    private int reportedWidth;
+    private int reportedHeight;
+    private int pendingHeight;
+    private long pendingSince;
+    private long lastEvaluation;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setMaxHeight(int height) {
+        maxHeight = Math.max(0, height);
+    }
+
+    public void setSourceSize(int width, int height) {
+        sourceWidth = width;
+        sourceHeight = height;
+    }
+
+    // Called once VLC has settled on a buffer format, with the height it decodes at
+    public void setDecodingHeight(int height) {
+        decodingHeight = height;
+    }
+
+    // Called by every view that draws the video, with its size in framebuffer pixels
+    public void reportViewSize(int pixelWidth, int pixelHeight) {
+        reportedWidth = Math.max(reportedWidth, pixelWidth);
+        reportedHeight = Math.max(reportedHeight, pixelHeight);
+    }
+
+    // Returns true when the target bucket changed and the decoder should renegotiate
+    public boolean update(long nowNanos) {
+        if (nowNanos - lastEvaluation < EVALUATE_INTERVAL_NANOS) {
+            return false;
+        }
+        lastEvaluation = nowNanos;
+
+        int width = reportedWidth;
+        int height = reportedHeight;
+        reportedWidth = 0;
+        reportedHeight = 0;
+        if (!enabled || width <= 0 || height <= 0) {
+            pendingHeight = 0;
+            return false;
+        }
+
+        // Height the decoder needs so that both dimensions cover the view
+        int needed = Math.max(height, (int) Math.ceil((double) width * sourceHeight / sourceWidth));
+        int current = targetHeight;
+        if (current == 0) {
+            // Playback that started before any view was drawn runs at the source size;
+            // moving off it restarts the decoder, so it settles like any other change
+            current = decodingHeight;
+        }
+        int candidate = bucketFor(needed);
+        if (current != 0 && candidate < current && bucketFor((int) Math.ceil(needed * SHRINK_MARGIN)) >= current) {
+            // Too close to the boundary to be worth shrinking
+            candidate = current;
+        }
+
+        if (candidate == current) {
+            pendingHeight = 0;
+            return false;
+        }
+
+        if (candidate != pendingHeight) {
+            pendingHeight = candidate;
+            pendingSince = nowNanos;
+            return current == 0 && adopt(candidate);
+        }
+
+        long settle = candidate > current ? GROW_SETTLE_NANOS : SHRINK_SETTLE_NANOS;
+        return nowNanos - pendingSince >= settle && adopt(candidate);
+    }
+
+    private boolean adopt(int height) {
+        targetHeight = height;
+        pendingHeight = 0;
+        return true;
+    }
+
+    // Called on the VLC thread: size to decode a source of the given size at
+    public int[] decodeSize(int sourceWidth, int sourceHeight) {
+        int height = enabled ? targetHeight : 0;
+        int cap = maxHeight;
+        if (cap > 0 && (height <= 0 || height > cap)) {
+            height = cap;
+        }
+        if (height <= 0 || height >= sourceHeight) {
+            return new int[] {sourceWidth, sourceHeight};
+        }
+
+        // Keep the source aspect; width multiple of 8 keeps RGBA rows 32-byte aligned
+        int width = (int) Math.round((double) sourceWidth * height / sourceHeight);
+        width = Math.max(8, (width + 7) & ~7);
+        return new int[] {Math.min(width, sourceWidth), height & ~1};
+    }
+
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    public int getTargetHeight() {
+        return targetHeight;
+    }
+
+    static int bucketFor(int neededHeight) {
+        for (int bucket : HEIGHT_BUCKETS) {
+            if (bucket >= neededHeight) {
+                return bucket;
+            }
+        }
+        return HEIGHT_BUCKETS[HEIGHT_BUCKETS.length - 1];
+    }
+}
@@ -0,0 +1,222 @@
+package com.videoplayer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.Arrays;
+
+// Finds the parts of a frame that changed since the last upload by hashing it in
+// fixed-size tiles. Screen recordings and slides usually change only a small area,
+// so converting and uploading just those tiles skips most of the per-frame work.
+public class DirtyRegionTracker {
+    public static final int TILE_WIDTH = 64;
+    public static final int TILE_HEIGHT = 32;
+
+    public enum Result {
+        // Nothing changed, the texture is already up to date
+        NONE,
+        // Only the rectangles reported by getRect() changed
+        PARTIAL,
+        // Convert and upload the whole frame
+        FULL
+    }
+
+    // Past this fraction of dirty tiles one full upload is cheaper than many small ones
+    private static final double FULL_UPLOAD_THRESHOLD = 0.5;
+
+    // Force a full upload now and then so a hash collision can never stick around
+    private static final int REFRESH_INTERVAL = 300;
+
+    private volatile boolean enabled = !"false".equals(System.getProperty("videoplayer.dirtyRegions"));
+
+    private int width;
+    private int height;
+    private int columns;
+    private int rows;
+    private long[] tileHashes = new long[0];
+    private long[] bandHashes = new long[0];
+    private boolean valid;
+    private int framesSinceRefresh;
+
+    // Dirty rectangles as x, y, width, height
+    private int[] rects = new int[64];
+    private int rectCount;
+
+    private long totalBytes;
+    private long skippedBytes;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidate();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The next frame is uploaded in full (new texture, new stream, ...)
+    public void invalidate() {
+        valid = false;
+    }
+
+    public Result analyze(long address, int width, int height) {
+        long frameBytes = (long) width * height * 4;
+        rectCount = 0;
+        totalBytes += frameBytes;
+
+        if (!enabled) {
+            return Result.FULL;
+        }
+
+        boolean resized = width != this.width || height != this.height;
+        if (resized) {
+            this.width = width;
+            this.height = height;
+            columns = (width + TILE_WIDTH - 1) / TILE_WIDTH;
+            rows = (height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+            tileHashes = new long[columns * rows];
+            bandHashes = new long[columns];
+            valid = false;
+        }
+
+        boolean refresh = !valid || ++framesSinceRefresh >= REFRESH_INTERVAL;
+        int dirtyTiles = 0;
+        long dirtyBytes = 0;
+        int pendingX0 = -1;
+        int pendingX1 = -1;
+        int pendingY0 = 0;
+
+        for (int row = 0; row < rows; row++) {
+            int y0 = row * TILE_HEIGHT;
+            int y1 = Math.min(height, y0 + TILE_HEIGHT);
+            hashBand(address, y0, y1);
+
+            int firstDirty = -1;
+            int lastDirty = -1;
+            for (int column = 0; column < columns; column++) {
+                int index = row * columns + column;
+                if (tileHashes[index] != bandHashes[column]) {
+                    tileHashes[index] = bandHashes[column];
+                    if (firstDirty < 0) {
+                        firstDirty = column;
+                    }
+                    lastDirty = column;
+                    dirtyTiles++;
+                }
+            }
+
+            if (firstDirty < 0) {
+                // Clean band closes any rectangle that was being grown
+                if (pendingX0 >= 0) {
+                    dirtyBytes += addRect(pendingX0, pendingY0, pendingX1, y0);
+                    pendingX0 = -1;
+                }
+                continue;
+            }
+
+            int x0 = firstDirty * TILE_WIDTH;
+            int x1 = Math.min(width, (lastDirty + 1) * TILE_WIDTH);
+            if (pendingX0 < 0) {
+                pendingX0 = x0;
+                pendingX1 = x1;
+                pendingY0 = y0;
+            } else {
+                // Merge vertically adjacent dirty bands into one rectangle
+                pendingX0 = Math.min(pendingX0, x0);
+                pendingX1 = Math.max(pendingX1, x1);
+            }
+        }
+        if (pendingX0 >= 0) {
+            dirtyBytes += addRect(pendingX0, pendingY0, pendingX1, height);
+        }
+
+        if (refresh) {
+            valid = true;
+            framesSinceRefresh = 0;
+            rectCount = 0;
+            return Result.FULL;
+        }
+        if (dirtyTiles == 0) {
+            skippedBytes += frameBytes;
+            return Result.NONE;
+        }
+        if (dirtyTiles > columns * rows * FULL_UPLOAD_THRESHOLD) {
+            rectCount = 0;
+            return Result.FULL;
+        }
+
+        skippedBytes += frameBytes - dirtyBytes;
+        return Result.PARTIAL;
+    }
+
+    // Hashes every tile in rows [y0, y1) into bandHashes, one entry per column
+    private void hashBand(long address, int y0, int y1) {
+        Arrays.fill(bandHashes, 0L);
+        int rowBytes = width * 4;
+        for (int y = y0; y < y1; y++) {
+            long rowAddress = address + (long) y * rowBytes;
+            for (int column = 0; column < columns; column++) {
+                int start = column * TILE_WIDTH * 4;
+                int end = Math.min(rowBytes, start + TILE_WIDTH * 4);
+                long hash = bandHashes[column];
+                int offset = start;
+                for (; offset + 8 <= end; offset += 8) {
+                    hash = mix(hash, MemoryUtil.memGetLong(rowAddress + offset));
+                }
+                if (offset < end) {
+                    hash = mix(hash, MemoryUtil.memGetInt(rowAddress + offset));
+                }
+                bandHashes[column] = hash;
+            }
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        return (Long.rotateLeft(hash, 7) ^ value) * 0x9E3779B97F4A7C15L;
+    }
+
+    private long addRect(int x0, int y0, int x1, int y1) {
+        if (rectCount * 4 + 4 > rects.length) {
+            rects = Arrays.copyOf(rects, rects.length * 2);
+        }
+        int base = rectCount * 4;
+        rects[base] = x0;
+        rects[base + 1] = y0;
+        rects[base + 2] = x1 - x0;
+        rects[base + 3] = y1 - y0;
+        rectCount++;
+        return (long) (x1 - x0) * (y1 - y0) * 4;
+    }
+
+    public int getRectCount() {
+        return rectCount;
+    }
+
+    public int getRectX(int index) {
+        return rects[index * 4];
+    }
+
+    public int getRectY(int index) {
+        return rects[index * 4 + 1];
+    }
+
+    public int getRectWidth(int index) {
+        return rects[index * 4 + 2];
+    }
+
+    public int getRectHeight(int index) {
+        return rects[index * 4 + 3];
+    }
+
+    // Fraction of frame bytes that did not need converting or uploading
+    public double getSkippedFraction() {
+        return totalBytes > 0 ? (double) skippedBytes / totalBytes : 0.0;
+    }
+
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,157 @@
+package com.videoplayer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pipeline stage between the decoder and the upload: converts decoded frames into
+// upload-ready RGBA on a small worker pool, so the render thread only copies finished
+// pixels to the GPU. Large frames are split into row stripes converted in parallel.
+// One conversion runs per player at a time, always on the newest decoded frame, and
+// finished frames go to the given output in decode order: a second triple buffer, where
+// a stale frame is overwritten, or a PresentationQueue that releases them by timestamp.
+public class FrameConversionStage {
+    private static final int THREADS = Integer.getInteger("videoplayer.convertThreads",
+        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+    // Below this a frame isn't worth splitting (about 720p)
+    private static final long STRIPE_BYTES = 4L * 1024 * 1024;
+
+    // Shared by all players
+    private static final ForkJoinPool POOL = new ForkJoinPool(THREADS, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Frame-Convert-" + thread.getPoolIndex());
+        return thread;
+    }, (thread, e) -> VideoPlayerMod.LOGGER.error("Frame conversion failed", e), false);
+
+    private final FrameMailbox input;
+    private final FrameExchange output;
+    private final PipelineMetrics metrics;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    // Guarded by this
+    private long lastSequence;
+
+    public FrameConversionStage(FrameMailbox input, FrameExchange output, PipelineMetrics metrics) {
+        this.input = input;
+        this.output = output;
+        this.metrics = metrics;
+        input.setPublishListener(this::schedule);
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equals(System.getProperty("videoplayer.conversionStage"));
+    }
+
+    // Upload-ready frames, always RGBA
+    public FrameExchange getOutput() {
+        return output;
+    }
+
+    // Called on the decoder thread for every published frame
+    private void schedule() {
+        if (!closed && scheduled.compareAndSet(false, true)) {
+            POOL.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            synchronized (this) {
+                FrameMailbox.Frame frame;
+                while (!closed && (frame = input.acquireLatest()) != null) {
+                    convert(frame);
+                }
+            }
+            scheduled.set(false);
+            // A frame published after the loop ended but before the flag cleared would otherwise wait
+        } while (!closed && input.hasNewFrame() && scheduled.compareAndSet(false, true));
+    }
+
+    private void convert(FrameMailbox.Frame source) {
+        if (source.getSequence() <= lastSequence || source.getBuffer() == null) {
+            return;
+        }
+        lastSequence = source.getSequence();
+
+        FrameConvertEvent event = new FrameConvertEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        boolean swizzle = FrameConverter.needsSwizzle(source.getChroma());
+        FrameMailbox.Frame target = output.beginWrite(width, height, FrameConverter.CHROMA_RGBA);
+
+        int stripes = (int) Math.max(1, Math.min(THREADS, (long) width * height * 4 / STRIPE_BYTES));
+        if (stripes == 1) {
+            FrameConverter.convert(source.getBuffer(), target.getAddress(), width, height, swizzle);
+        } else {
+            Stripe[] tasks = new Stripe[stripes];
+            for (int i = 0; i < stripes; i++) {
+                int firstRow = height * i / stripes;
+                int lastRow = height * (i + 1) / stripes;
+                tasks[i] = new Stripe(source, target.getAddress(), firstRow, lastRow - firstRow, swizzle);
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+
+        long end = System.nanoTime();
+        output.publish(source.getPublishedNanos());
+        long latency = end - source.getPublishedNanos();
+        metrics.recordConversion(end - start);
+        metrics.recordConversionLatency(latency);
+
+        if (event.shouldCommit()) {
+            event.width = width;
+            event.height = height;
+            event.stripes = stripes;
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    private static final class Stripe extends RecursiveAction {
+        private final FrameMailbox.Frame source;
+        private final long destination;
+        private final int firstRow;
+        private final int rows;
+        private final boolean swizzle;
+
+        Stripe(FrameMailbox.Frame source, long destination, int firstRow, int rows, boolean swizzle) {
+            this.source = source;
+            this.destination = destination;
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.swizzle = swizzle;
+        }
+
+        @Override
+        protected void compute() {
+            FrameConverter.convertRect(source.getBuffer(), destination, source.getWidth(),
+                0, firstRow, source.getWidth(), rows, swizzle);
+        }
+    }
+
+    // Frees both sides' buffers; only safe once the decoder has stopped producing
+    public synchronized void release() {
+        input.release();
+        output.release();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        input.setPublishListener(null);
+        output.release();
+    }
+
+    public long getAllocatedBytes() {
+        return output.getAllocatedBytes();
+    }
+
+    public static int getThreads() {
+        return THREADS;
+    }
+}
@@ -0,0 +1,31 @@
+package com.videoplayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Emitted on a conversion worker for every frame made upload-ready; the event's
+// duration is the conversion itself
+@Name("com.videoplayer.FrameConvert")
+@Label("Video Frame Conversion")
+@Category({"Video Player", "Pipeline"})
+@Description("A decoded video frame was converted to RGBA off the render thread")
+@StackTrace(false)
+public class FrameConvertEvent extends jdk.jfr.Event {
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Stripes")
+    @Description("Row stripes the frame was split into across the worker pool")
+    public int stripes;
+
+    @Label("Decode To Converted Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    public long latency;
+}
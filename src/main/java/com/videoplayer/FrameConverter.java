@@ -0,0 +1,117 @@
+package com.videoplayer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class FrameConverter {
+    // VLC chroma names for the two pixel layouts we can ask the decoder for
+    public static final String CHROMA_BGRA = "RV32";
+    public static final String CHROMA_RGBA = "RGBA";
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // Masks for swapping the R and B bytes of two packed little-endian pixels at once
+    private static final long KEEP_GA = 0xFF00FF00FF00FF00L;
+    private static final long LOW_BYTE = 0x000000FF000000FFL;
+    private static final long THIRD_BYTE = 0x00FF000000FF0000L;
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private FrameConverter() {
+    }
+
+    public static boolean needsSwizzle(String chroma) {
+        return !CHROMA_RGBA.equals(chroma);
+    }
+
+    // Converts a full frame from the decoder buffer into RGBA pixel memory (e.g. a NativeImage)
+    public static void convert(ByteBuffer source, long destination, int width, int height, boolean swizzle) {
+        long bytes = (long) width * height * BYTES_PER_PIXEL;
+        if (destination == 0L || bytes <= 0) {
+            return;
+        }
+        if (source.capacity() < bytes) {
+            throw new IllegalArgumentException("Frame buffer too small: " + source.capacity() + " < " + bytes);
+        }
+
+        if (!source.isDirect()) {
+            convertScalar(source, 0, destination, bytes, swizzle);
+        } else if (!swizzle) {
+            // Decoder already produced RGBA, so the frame is a plain copy
+            MemoryUtil.memCopy(MemoryUtil.memAddress0(source), destination, bytes);
+        } else if (LITTLE_ENDIAN) {
+            swizzleBgraToRgba(MemoryUtil.memAddress0(source), destination, bytes);
+        } else {
+            convertScalar(source, 0, destination, bytes, true);
+        }
+    }
+
+    // Converts one rectangle of a frame; source and destination share the same row stride
+    public static void convertRect(ByteBuffer source, long destination, int frameWidth,
+                                   int x, int y, int width, int height, boolean swizzle) {
+        if (destination == 0L || width <= 0 || height <= 0) {
+            return;
+        }
+
+        int stride = frameWidth * BYTES_PER_PIXEL;
+        long rowBytes = (long) width * BYTES_PER_PIXEL;
+        boolean fast = source.isDirect() && (LITTLE_ENDIAN || !swizzle);
+        long sourceAddress = fast ? MemoryUtil.memAddress0(source) : 0L;
+
+        for (int row = y; row < y + height; row++) {
+            long offset = (long) row * stride + (long) x * BYTES_PER_PIXEL;
+            if (!fast) {
+                convertScalar(source, (int) offset, destination + offset, rowBytes, swizzle);
+            } else if (swizzle) {
+                swizzleBgraToRgba(sourceAddress + offset, destination + offset, rowBytes);
+            } else {
+                MemoryUtil.memCopy(sourceAddress + offset, destination + offset, rowBytes);
+            }
+        }
+    }
+
+    // Swaps B and R two pixels per 64-bit word, unrolled to 8 pixels per iteration
+    static void swizzleBgraToRgba(long source, long destination, long bytes) {
+        long offset = 0;
+        long unrolledEnd = bytes & ~31L;
+        while (offset < unrolledEnd) {
+            MemoryUtil.memPutLong(destination + offset, swizzle2(MemoryUtil.memGetLong(source + offset)));
+            MemoryUtil.memPutLong(destination + offset + 8, swizzle2(MemoryUtil.memGetLong(source + offset + 8)));
+            MemoryUtil.memPutLong(destination + offset + 16, swizzle2(MemoryUtil.memGetLong(source + offset + 16)));
+            MemoryUtil.memPutLong(destination + offset + 24, swizzle2(MemoryUtil.memGetLong(source + offset + 24)));
+            offset += 32;
+        }
+
+        // Remaining whole pixels one at a time
+        while (offset < bytes) {
+            int bgra = MemoryUtil.memGetInt(source + offset);
+            MemoryUtil.memPutInt(destination + offset, swizzle1(bgra));
+            offset += BYTES_PER_PIXEL;
+        }
+    }
+
+    static long swizzle2(long bgra) {
+        return (bgra & KEEP_GA) | ((bgra >>> 16) & LOW_BYTE) | ((bgra << 16) & THIRD_BYTE);
+    }
+
+    static int swizzle1(int bgra) {
+        return (bgra & 0xFF00FF00) | ((bgra >>> 16) & 0xFF) | ((bgra & 0xFF) << 16);
+    }
+
+    // Byte-wise fallback for heap buffers and big-endian platforms
+    static void convertScalar(ByteBuffer source, int sourceOffset, long destination, long bytes, boolean swizzle) {
+        for (int i = 0; i < bytes; i += BYTES_PER_PIXEL) {
+            byte c0 = source.get(sourceOffset + i);
+            byte c1 = source.get(sourceOffset + i + 1);
+            byte c2 = source.get(sourceOffset + i + 2);
+            byte c3 = source.get(sourceOffset + i + 3);
+
+            MemoryUtil.memPutByte(destination + i, swizzle ? c2 : c0);
+            MemoryUtil.memPutByte(destination + i + 1, c1);
+            MemoryUtil.memPutByte(destination + i + 2, swizzle ? c0 : c2);
+            MemoryUtil.memPutByte(destination + i + 3, c3);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.videoplayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Emitted on VLC's thread for every frame written into the mailbox; the event's
+// duration covers the decoder write (direct decode) or the display() copy
+@Name("com.videoplayer.FrameDecoded")
+@Label("Video Frame Decoded")
+@Category({"Video Player", "Pipeline"})
+@Description("A decoded video frame was written into the frame mailbox")
+@StackTrace(false)
+public class FrameDecodedEvent extends jdk.jfr.Event {
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Frame Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Copied")
+    @Description("True when the frame was copied out of VLC's buffer instead of decoded in place")
+    public boolean copied;
+}
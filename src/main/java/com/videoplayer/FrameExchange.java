@@ -0,0 +1,41 @@
+package com.videoplayer;
+
+// Hand-off of frames from one producer thread (VLC's video thread or a conversion
+// worker) to the render thread. FrameMailbox always hands over the newest frame;
+// PresentationQueue holds a few and hands over the one due at the consumer's clock.
+public interface FrameExchange {
+    // Producer: returns the slot to fill, sized for the given frame
+    FrameMailbox.Frame beginWrite(int width, int height, String chroma);
+
+    // Producer: publishes the slot from beginWrite, stamped with when the decoder presented it
+    void publish(long publishedNanos);
+
+    default void publish() {
+        publish(System.nanoTime());
+    }
+
+    // Producer: records a decoded frame that could not be published
+    void drop();
+
+    // Run on the producer thread after every publish
+    void setPublishListener(Runnable listener);
+
+    // Consumer: whether acquire would return a frame for this clock reading
+    boolean hasFrameDue(long clockNanos);
+
+    // Consumer: the frame to show at clockNanos, or null to keep showing the current one
+    FrameMailbox.Frame acquire(long clockNanos);
+
+    // Only safe once the producer has stopped
+    void release();
+
+    // Native memory currently held by the slots
+    long getAllocatedBytes();
+
+    long getPublishedFrames();
+
+    // Frames replaced or evicted before the consumer took them
+    long getOverwrittenFrames();
+
+    long getDroppedFrames();
+}
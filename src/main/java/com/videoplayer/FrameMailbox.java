@@ -0,0 +1,216 @@
+package com.videoplayer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free triple buffer between the VLC decoder thread (single producer)
+// and the render thread (single consumer). The producer always owns the back
+// slot, the consumer always owns the front slot, and the two swap through the
+// shared middle slot, so neither side ever blocks or sees a half-written frame.
+// The consumer's clock is ignored: whatever is newest is always due.
+public class FrameMailbox implements FrameExchange {
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH = 0b100;
+
+    // Decoders write into slots directly, so keep them cache-line (and SIMD) aligned
+    private static final int SLOT_ALIGNMENT = 64;
+
+    public static final class Frame {
+        private ByteBuffer buffer;
+        private int width;
+        private int height;
+        private String chroma = FrameConverter.CHROMA_BGRA;
+        private long sequence;
+        private long publishedNanos;
+
+        void prepare(int width, int height, String chroma) {
+            int bytes = width * height * 4;
+            if (buffer == null || buffer.capacity() < bytes) {
+                release();
+                buffer = MemoryUtil.memAlignedAlloc(SLOT_ALIGNMENT, bytes);
+            }
+            buffer.clear();
+            this.width = width;
+            this.height = height;
+            this.chroma = chroma;
+        }
+
+        void stamp(long sequence, long publishedNanos) {
+            this.sequence = sequence;
+            this.publishedNanos = publishedNanos;
+        }
+
+        void release() {
+            if (buffer != null) {
+                MemoryUtil.memAlignedFree(buffer);
+                buffer = null;
+            }
+        }
+
+        public long getAddress() {
+            return buffer != null ? MemoryUtil.memAddress0(buffer) : 0L;
+        }
+
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getChroma() {
+            return chroma;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getPublishedNanos() {
+            return publishedNanos;
+        }
+
+        public int getByteSize() {
+            return width * height * 4;
+        }
+    }
+
+    private final Frame[] frames = {new Frame(), new Frame(), new Frame()};
+
+    // Index of the middle slot plus a FRESH bit when it holds an unread frame
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Producer-owned
+    private int back = 0;
+    private long nextSequence = 0;
+
+    // Consumer-owned
+    private int front = 2;
+
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong consumedFrames = new AtomicLong();
+    private final AtomicLong overwrittenFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    // Run on the producer thread after every publish, e.g. to wake the conversion stage
+    private volatile Runnable publishListener;
+
+    // Producer: returns the slot to fill, sized for the given frame
+    @Override
+    public Frame beginWrite(int width, int height, String chroma) {
+        Frame frame = frames[back];
+        frame.prepare(width, height, chroma);
+        return frame;
+    }
+
+    // Producer: hands the back slot to the consumer and takes the old middle slot.
+    // A later stage passes on the decoder's publish time, so latency stays end to end
+    @Override
+    public void publish(long publishedNanos) {
+        frames[back].stamp(++nextSequence, publishedNanos);
+
+        int previous = middle.getAndSet(back | FRESH);
+        if ((previous & FRESH) != 0) {
+            // The renderer never saw the frame we just replaced
+            overwrittenFrames.incrementAndGet();
+        }
+        back = previous & INDEX_MASK;
+        publishedFrames.incrementAndGet();
+
+        Runnable listener = publishListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public void setPublishListener(Runnable listener) {
+        publishListener = listener;
+    }
+
+    // Producer: records a decoded frame that could not be published
+    @Override
+    public void drop() {
+        droppedFrames.incrementAndGet();
+    }
+
+    public boolean hasNewFrame() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    // Consumer: swaps in the newest complete frame, or returns null if nothing new arrived
+    public Frame acquireLatest() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+
+        int previous = middle.getAndSet(front);
+        front = previous & INDEX_MASK;
+        consumedFrames.incrementAndGet();
+        return frames[front];
+    }
+
+    @Override
+    public boolean hasFrameDue(long clockNanos) {
+        return hasNewFrame();
+    }
+
+    @Override
+    public Frame acquire(long clockNanos) {
+        return acquireLatest();
+    }
+
+    // Consumer: the frame most recently acquired
+    public Frame current() {
+        return frames[front];
+    }
+
+    // Only safe once the decoder has stopped producing
+    @Override
+    public void release() {
+        for (Frame frame : frames) {
+            frame.release();
+        }
+        middle.set(middle.get() & INDEX_MASK);
+    }
+
+    // Native memory currently held by the slots
+    @Override
+    public long getAllocatedBytes() {
+        long total = 0;
+        for (Frame frame : frames) {
+            ByteBuffer buffer = frame.buffer;
+            if (buffer != null) {
+                total += buffer.capacity();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getPublishedFrames() {
+        return publishedFrames.get();
+    }
+
+    public long getConsumedFrames() {
+        return consumedFrames.get();
+    }
+
+    @Override
+    public long getOverwrittenFrames() {
+        return overwrittenFrames.get();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+}
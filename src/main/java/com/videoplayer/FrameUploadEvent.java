@@ -0,0 +1,39 @@
+package com.videoplayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Emitted on the render thread for every frame converted and uploaded to the GPU;
+// the event's duration is the whole conversion plus upload
+@Name("com.videoplayer.FrameUpload")
+@Label("Video Frame Upload")
+@Category({"Video Player", "Pipeline"})
+@Description("A video frame was converted and uploaded to the video texture")
+@StackTrace(false)
+public class FrameUploadEvent extends jdk.jfr.Event {
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Uploaded Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Conversion Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long conversionTime;
+
+    @Label("Decode To Present Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    public long latency;
+
+    @Label("Backend")
+    public String backend;
+}
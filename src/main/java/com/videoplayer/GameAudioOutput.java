@@ -0,0 +1,478 @@
+package com.videoplayer;
+
+import com.sun.jna.Pointer;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.AL11;
+import org.lwjgl.system.MemoryUtil;
+import uk.co.caprica.vlcj.player.base.MediaPlayer;
+import uk.co.caprica.vlcj.player.base.callback.AudioCallback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.DoubleSupplier;
+
+// Plays a player's audio through Minecraft's OpenAL context instead of VLC's own
+// output, so it follows the game's volume sliders. VLC hands decoded PCM to play()
+// on its audio thread, which only copies it into a PcmRingBuffer. A pump thread moves
+// it from there into a streaming OpenAL source in 10 ms buffers, holding back audio
+// that VLC delivered early and skipping audio that would play more than the latency
+// bound late. From the source's play offset it keeps an audio clock: how far behind
+// VLC's schedule the sound actually coming out of the speakers is. With nothing
+// buffered or queued, or while paused, the pump parks until VLC calls in again.
+//
+// Minecraft's SoundEngine tears its context down and builds a new one on the render
+// thread (sound reloads, device changes). Pumps make their AL calls under the read
+// side of ENGINE_LOCK; SoundEngineMixin takes the write side before the context is
+// destroyed and reports when a new one is current, so no pump ever calls into a dead
+// context. Sources died with the old context and are recreated for the new one.
+public class GameAudioOutput implements AudioCallback {
+    public static final String FORMAT = "S16N";
+    public static final int RATE = 48000;
+    public static final int CHANNELS = 2;
+    private static final int FRAME_BYTES = CHANNELS * 2;
+
+    private static final int CHUNK_BYTES = RATE / 100 * FRAME_BYTES;
+    private static final int BUFFERS = 16;
+    // Audio kept queued in OpenAL ahead of the speakers
+    private static final long QUEUE_NANOS = Long.getLong("videoplayer.audio.queueMs", 40) * 1_000_000L;
+    // Audio that would play later than this behind VLC's schedule is skipped
+    private static final long MAX_LATENCY_NANOS = Long.getLong("videoplayer.audio.maxLatencyMs", 150) * 1_000_000L;
+    private static final long EARLY_TOLERANCE_NANOS = 5_000_000L;
+    private static final long PUMP_INTERVAL_NANOS = 5_000_000L;
+    // VLC's timestamps are on the same monotonic clock as System.nanoTime() on every
+    // platform VLC supports; if they aren't, they are rebased on the first block
+    private static final long CLOCK_MISMATCH_NANOS = 10_000_000_000L;
+
+    private static final ReentrantReadWriteLock ENGINE_LOCK = new ReentrantReadWriteLock();
+    // Guarded by ENGINE_LOCK; bumped whenever a new context becomes current
+    private static boolean engineReady;
+    private static int engineGeneration;
+
+    private final PcmRingBuffer ring = new PcmRingBuffer(RATE * FRAME_BYTES);
+    // Game volume for video audio, 0..1; read by the pump
+    private final DoubleSupplier gameVolume;
+    private final Thread pump;
+    private volatile boolean running = true;
+    // Set while the pump is parked with nothing to do, so VLC's calls know to wake it
+    private volatile boolean idle;
+
+    // Stream position and VLC time of the latest block, written by VLC's audio thread
+    // and read by the pump under a sequence lock: odd while being written
+    private final AtomicInteger anchorSequence = new AtomicInteger();
+    private volatile long anchorPosition;
+    private volatile long anchorPtsNanos;
+    private volatile boolean hasAnchor;
+    // VLC audio thread only
+    private long ptsOffsetNanos = Long.MIN_VALUE;
+
+    // Requests from VLC's audio thread to the pump
+    private volatile boolean paused;
+    private volatile boolean flushRequested;
+    private volatile float vlcVolume = 1.0f;
+    private volatile boolean vlcMuted;
+
+    // OpenAL objects; pump thread only. generation is the engine generation they belong to
+    private int generation;
+    private int source;
+    private final int[] freeBuffers = new int[BUFFERS];
+    private int freeCount;
+    // Queued buffers in play order, as a ring of BUFFERS entries
+    private final int[] queuedBuffer = new int[BUFFERS];
+    private final long[] queuedPts = new long[BUFFERS];
+    private final int[] queuedBytes = new int[BUFFERS];
+    private int queueHead;
+    private int queueCount;
+    private long staging;
+    private boolean expectPlaying;
+    private boolean starved;
+    private long pausedAt;
+    private float gain = -1.0f;
+
+    // Read by the render thread and the stats
+    private volatile long latencyNanos;
+    private volatile boolean clockValid;
+    private volatile long queuedNanos;
+    private final AtomicLong underruns = new AtomicLong();
+    private final AtomicLong lateSkips = new AtomicLong();
+
+    public GameAudioOutput(String name, DoubleSupplier gameVolume) {
+        this.gameVolume = gameVolume;
+        pump = new Thread(this::run, "Audio-Pump-" + name);
+        pump.setDaemon(true);
+        pump.setPriority(Thread.NORM_PRIORITY + 2);
+        pump.start();
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equals(System.getProperty("videoplayer.gameAudio"));
+    }
+
+    // Render thread, before the sound engine destroys its context; waits for pumps mid-call
+    public static void onEngineClosing() {
+        ENGINE_LOCK.writeLock().lock();
+        try {
+            engineReady = false;
+        } finally {
+            ENGINE_LOCK.writeLock().unlock();
+        }
+    }
+
+    // Once the sound engine's new context is current
+    public static void onEngineStarted() {
+        ENGINE_LOCK.writeLock().lock();
+        try {
+            engineReady = true;
+            engineGeneration++;
+        } finally {
+            ENGINE_LOCK.writeLock().unlock();
+        }
+    }
+
+    // VLC audio thread: copy and return, never wait
+    @Override
+    public void play(MediaPlayer mediaPlayer, Pointer samples, int sampleCount, long pts) {
+        long ptsNanos = pts * 1000;
+        if (ptsOffsetNanos == Long.MIN_VALUE) {
+            long now = System.nanoTime();
+            ptsOffsetNanos = Math.abs(ptsNanos - now) < CLOCK_MISMATCH_NANOS ? 0 : now - ptsNanos;
+        }
+        long position = ring.getWritePosition();
+        if (!ring.write(Pointer.nativeValue(samples), sampleCount * FRAME_BYTES)) {
+            return;
+        }
+        anchorSequence.incrementAndGet();
+        anchorPosition = position;
+        anchorPtsNanos = ptsNanos + ptsOffsetNanos;
+        hasAnchor = true;
+        // The increment orders the ring write before this read, and the pump sets idle
+        // before checking the ring, so one of the two always sees the other
+        anchorSequence.incrementAndGet();
+        if (idle) {
+            LockSupport.unpark(pump);
+        }
+    }
+
+    @Override
+    public void pause(MediaPlayer mediaPlayer, long pts) {
+        paused = true;
+    }
+
+    @Override
+    public void resume(MediaPlayer mediaPlayer, long pts) {
+        paused = false;
+        LockSupport.unpark(pump);
+    }
+
+    // Seeks and track changes: what is buffered no longer belongs to the stream
+    @Override
+    public void flush(MediaPlayer mediaPlayer, long pts) {
+        ring.flush();
+        flushRequested = true;
+        LockSupport.unpark(pump);
+    }
+
+    @Override
+    public void drain(MediaPlayer mediaPlayer) {
+    }
+
+    @Override
+    public void setVolume(float volume, boolean mute) {
+        vlcVolume = volume;
+        vlcMuted = mute;
+    }
+
+    // VLC time, on the System.nanoTime() scale, of the sound playing now; falls back to now
+    public long getClockNanos(long now) {
+        return clockValid ? now - latencyNanos : now;
+    }
+
+    public boolean isClockValid() {
+        return clockValid;
+    }
+
+    // How far the sound coming out is behind VLC's schedule
+    public double getLatencyMillis() {
+        return clockValid ? latencyNanos / 1_000_000.0 : 0.0;
+    }
+
+    // Audio waiting in the ring plus queued in OpenAL
+    public double getBufferedMillis() {
+        return bytesToNanos(ring.getWritePosition() - ring.getReadPosition()) / 1_000_000.0 + queuedNanos / 1_000_000.0;
+    }
+
+    // OpenAL ran dry while VLC was still delivering
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    // Blocks dropped because the ring was full or they would have played too late
+    public long getOverruns() {
+        return ring.getOverruns() + lateSkips.get();
+    }
+
+    private static long bytesToNanos(long bytes) {
+        return bytes / FRAME_BYTES * 1_000_000_000L / RATE;
+    }
+
+    private void run() {
+        staging = MemoryUtil.nmemAlloc(CHUNK_BYTES);
+        try {
+            while (running) {
+                boolean active = true;
+                try {
+                    active = pump(System.nanoTime());
+                } catch (Exception e) {
+                    VideoPlayerMod.LOGGER.warn("Audio pump failed, resetting OpenAL source", e);
+                    source = 0;
+                    generation = 0;
+                }
+                if (active) {
+                    LockSupport.parkNanos(PUMP_INTERVAL_NANOS);
+                } else {
+                    parkUntilNeeded();
+                }
+            }
+        } finally {
+            deleteSource();
+            MemoryUtil.nmemFree(staging);
+            ring.free();
+        }
+    }
+
+    // Woken by play(), resume(), flush() and close()
+    private void parkUntilNeeded() {
+        idle = true;
+        if (running && !flushRequested && ring.available() == 0) {
+            LockSupport.park(this);
+        }
+        idle = false;
+    }
+
+    // Returns whether it has to run again shortly: something is buffered, queued or playing
+    private boolean pump(long now) {
+        Lock lock = ENGINE_LOCK.readLock();
+        lock.lock();
+        try {
+            return pumpLocked(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Holding the read side of ENGINE_LOCK
+    private boolean pumpLocked(long now) {
+        if (!engineReady) {
+            // The old context is gone and took the source with it
+            source = 0;
+            generation = 0;
+        } else if (generation != engineGeneration) {
+            source = 0;
+            generation = engineGeneration;
+            createSource();
+        }
+        if (source == 0) {
+            // No sound device: keep up with VLC so nothing piles up
+            ring.skip(ring.available());
+            clockValid = false;
+            return false;
+        }
+
+        if (flushRequested) {
+            flushRequested = false;
+            AL10.alSourceStop(source);
+            AL10.alSourcei(source, AL10.AL_BUFFER, 0);
+            while (queueCount > 0) {
+                freeBuffers[freeCount++] = queuedBuffer[queueHead];
+                popQueued();
+            }
+            expectPlaying = false;
+            starved = false;
+            clockValid = false;
+        }
+
+        updateGain();
+
+        int state = AL10.alGetSourcei(source, AL10.AL_SOURCE_STATE);
+        if (paused) {
+            if (state == AL10.AL_PLAYING) {
+                AL10.alSourcePause(source);
+                pausedAt = now;
+            }
+            return false;
+        }
+        if (pausedAt != 0) {
+            // VLC shifts its schedule by the pause; so do the buffers waiting to play
+            long shift = now - pausedAt;
+            for (int i = 0; i < queueCount; i++) {
+                queuedPts[(queueHead + i) % BUFFERS] += shift;
+            }
+            pausedAt = 0;
+            if (state == AL10.AL_PAUSED) {
+                // Otherwise the paused buffers count as nothing queued and the queue doubles
+                AL10.alSourcePlay(source);
+                state = AL10.AL_PLAYING;
+            }
+        }
+
+        // Offset is counted from the first buffer still queued, played ones included
+        long aheadNanos = 0;
+        if (queueCount > 0 && state == AL10.AL_PLAYING) {
+            int offset = AL10.alGetSourcei(source, AL11.AL_BYTE_OFFSET);
+            long total = 0;
+            boolean found = false;
+            for (int i = 0; i < queueCount; i++) {
+                int index = (queueHead + i) % BUFFERS;
+                if (!found && offset < total + queuedBytes[index]) {
+                    latencyNanos = now - (queuedPts[index] + bytesToNanos(offset - total));
+                    clockValid = true;
+                    found = true;
+                }
+                total += queuedBytes[index];
+            }
+            aheadNanos = bytesToNanos(Math.max(0, total - offset));
+        } else if (state == AL10.AL_STOPPED && expectPlaying) {
+            // Played everything it had
+            expectPlaying = false;
+            starved = true;
+            clockValid = false;
+        }
+
+        int processed = AL10.alGetSourcei(source, AL10.AL_BUFFERS_PROCESSED);
+        for (int i = 0; i < processed && queueCount > 0; i++) {
+            freeBuffers[freeCount++] = AL10.alSourceUnqueueBuffers(source);
+            popQueued();
+        }
+
+        boolean queuedMore = false;
+        while (freeCount > 0 && aheadNanos < QUEUE_NANOS) {
+            int available = ring.available();
+            if (available < FRAME_BYTES || (available < CHUNK_BYTES && aheadNanos > 0)) {
+                break;
+            }
+            long pts = ptsAt(ring.getReadPosition());
+            long playsAt = now + aheadNanos;
+            if (pts != Long.MIN_VALUE) {
+                if (pts - EARLY_TOLERANCE_NANOS > playsAt) {
+                    // Delivered ahead of time; wait until it is due
+                    break;
+                }
+                if (playsAt - pts > MAX_LATENCY_NANOS) {
+                    ring.skip(CHUNK_BYTES);
+                    lateSkips.incrementAndGet();
+                    continue;
+                }
+            }
+
+            int bytes = ring.read(staging, Math.min(available, CHUNK_BYTES) / FRAME_BYTES * FRAME_BYTES);
+            int buffer = freeBuffers[--freeCount];
+            AL10.nalBufferData(buffer, AL10.AL_FORMAT_STEREO16, staging, bytes, RATE);
+            AL10.alSourceQueueBuffers(source, buffer);
+            int index = (queueHead + queueCount) % BUFFERS;
+            queuedBuffer[index] = buffer;
+            queuedPts[index] = pts != Long.MIN_VALUE ? pts : playsAt;
+            queuedBytes[index] = bytes;
+            queueCount++;
+            aheadNanos += bytesToNanos(bytes);
+            queuedMore = true;
+        }
+        queuedNanos = aheadNanos;
+
+        if (queuedMore && AL10.alGetSourcei(source, AL10.AL_SOURCE_STATE) != AL10.AL_PLAYING) {
+            AL10.alSourcePlay(source);
+            expectPlaying = true;
+            if (starved) {
+                underruns.incrementAndGet();
+                starved = false;
+            }
+        }
+        // Playing until the source is seen to stop, so the clock isn't left valid
+        return queueCount > 0 || expectPlaying || ring.available() > 0;
+    }
+
+    // VLC time of the byte at this stream position, from the latest block's timestamp
+    private long ptsAt(long position) {
+        while (true) {
+            int sequence = anchorSequence.get();
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            boolean known = hasAnchor;
+            long anchor = anchorPosition;
+            long pts = anchorPtsNanos;
+            if (anchorSequence.get() == sequence) {
+                return known ? pts + (position - anchor) / FRAME_BYTES * 1_000_000_000L / RATE : Long.MIN_VALUE;
+            }
+        }
+    }
+
+    private void popQueued() {
+        queueHead = (queueHead + 1) % BUFFERS;
+        queueCount--;
+    }
+
+    private void updateGain() {
+        float target = vlcMuted ? 0.0f : (float) gameVolume.getAsDouble() * vlcVolume;
+        if (target != gain) {
+            AL10.alSourcef(source, AL10.AL_GAIN, target);
+            gain = target;
+        }
+    }
+
+    private void createSource() {
+        AL10.alGetError();
+        int newSource = AL10.alGenSources();
+        if (AL10.alGetError() != AL10.AL_NO_ERROR) {
+            VideoPlayerMod.LOGGER.warn("No OpenAL source left for video audio");
+            return;
+        }
+        // Plays as-is, wherever the listener is
+        AL10.alSourcei(newSource, AL10.AL_SOURCE_RELATIVE, AL10.AL_TRUE);
+        AL10.alSource3f(newSource, AL10.AL_POSITION, 0.0f, 0.0f, 0.0f);
+        AL10.alSourcef(newSource, AL10.AL_ROLLOFF_FACTOR, 0.0f);
+        for (int i = 0; i < BUFFERS; i++) {
+            freeBuffers[i] = AL10.alGenBuffers();
+        }
+        freeCount = BUFFERS;
+        queueHead = 0;
+        queueCount = 0;
+        expectPlaying = false;
+        starved = false;
+        gain = -1.0f;
+        source = newSource;
+    }
+
+    private void deleteSource() {
+        Lock lock = ENGINE_LOCK.readLock();
+        lock.lock();
+        try {
+            if (source != 0 && engineReady && generation == engineGeneration) {
+                deleteSourceLocked();
+            }
+            source = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteSourceLocked() {
+        AL10.alSourceStop(source);
+        AL10.alSourcei(source, AL10.AL_BUFFER, 0);
+        AL10.alDeleteSources(source);
+        for (int i = 0; i < freeCount; i++) {
+            AL10.alDeleteBuffers(freeBuffers[i]);
+        }
+        for (int i = 0; i < queueCount; i++) {
+            AL10.alDeleteBuffers(queuedBuffer[(queueHead + i) % BUFFERS]);
+        }
+    }
+
+    // After the media player is released, so VLC no longer calls in
+    public void close() {
+        running = false;
+        LockSupport.unpark(pump);
+    }
+}
@@ -0,0 +1,99 @@
+package com.videoplayer;
+
+// Where the HUD overlay's controls sit, relative to the video's top-left corner.
+// ControlOverlay rasterizes from it, VideoPlayerHud hit-tests against it and
+// VideoPlayerScreen lays out its own seek bar with it, so the geometry lives in one place.
+public class HudControlsLayout {
+    public enum Control {
+        NONE,
+        PLAY_PAUSE,
+        SEEK_BAR
+    }
+
+    public static final int PLAY_PAUSE_SIZE = 48;
+    public static final int SEEK_BAR_HEIGHT = 4;
+    public static final int SEEK_BAR_INSET = 4;
+    // Extra pixels above and below the bar that still grab it
+    public static final int SEEK_BAR_SLOP = 3;
+    public static final int LABEL_HEIGHT = 14;
+
+    private int width;
+    private int height;
+    private boolean hasSeekBar;
+
+    // Returns true if anything moved
+    public boolean update(int width, int height, boolean hasSeekBar) {
+        if (width == this.width && height == this.height && hasSeekBar == this.hasSeekBar) {
+            return false;
+        }
+        this.width = width;
+        this.height = height;
+        this.hasSeekBar = hasSeekBar;
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasSeekBar() {
+        return hasSeekBar;
+    }
+
+    public int playPauseX() {
+        return (width - PLAY_PAUSE_SIZE) / 2;
+    }
+
+    public int playPauseY() {
+        return (height - PLAY_PAUSE_SIZE) / 2;
+    }
+
+    public int seekBarX() {
+        return SEEK_BAR_INSET;
+    }
+
+    public int seekBarY() {
+        return height - SEEK_BAR_INSET - SEEK_BAR_HEIGHT;
+    }
+
+    public int seekBarWidth() {
+        return Math.max(0, width - 2 * SEEK_BAR_INSET);
+    }
+
+    // Time label box, just above the seek bar on the left
+    public int labelX() {
+        return SEEK_BAR_INSET;
+    }
+
+    public int labelY() {
+        return seekBarY() - 2 - LABEL_HEIGHT;
+    }
+
+    // Height along the bottom of the video taken by the time label and seek bar
+    public int bottomReserve() {
+        return hasSeekBar ? height - labelY() : 0;
+    }
+
+    // x and y relative to the video
+    public Control hitTest(double x, double y) {
+        if (x >= playPauseX() && x <= playPauseX() + PLAY_PAUSE_SIZE &&
+            y >= playPauseY() && y <= playPauseY() + PLAY_PAUSE_SIZE) {
+            return Control.PLAY_PAUSE;
+        }
+        if (hasSeekBar && x >= seekBarX() && x <= seekBarX() + seekBarWidth() &&
+            y >= seekBarY() - SEEK_BAR_SLOP && y <= seekBarY() + SEEK_BAR_HEIGHT + SEEK_BAR_SLOP) {
+            return Control.SEEK_BAR;
+        }
+        return Control.NONE;
+    }
+
+    // 0..1 along the seek bar for an x relative to the video
+    public double seekFraction(double x) {
+        int barWidth = seekBarWidth();
+        return barWidth > 0 ? Math.max(0.0, Math.min(1.0, (x - seekBarX()) / barWidth)) : 0.0;
+    }
+}
@@ -0,0 +1,389 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Local HTTP proxy VLC plays resolved streams through. Requests are answered from
+// 1 MiB segments: cached segments are memory-mapped from the SegmentCache, missing
+// ones are fetched from the upstream URL with a range request, stored, and served.
+// Seeking back, rewatching or looping a clip therefore reads from disk instead of
+// downloading again. Media are keyed by page URL and format rather than by stream
+// URL, so segments stay valid when the stream URL expires and is resolved again.
+public class MediaCacheProxy {
+    private static final long MAX_BYTES = Long.getLong("videoplayer.mediaCache.sizeMb", 1024) * 1024 * 1024;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final Gson GSON = new Gson();
+
+    // Persisted next to a media's segments, so fully cached media play without the network
+    private static class MediaInfo {
+        transient volatile String upstream;
+        transient volatile boolean rangesUnsupported;
+        volatile long length = -1;
+        volatile String contentType;
+    }
+
+    private final SegmentCache cache;
+    private final Map<String, MediaInfo> media = new ConcurrentHashMap<>();
+    // Locks rather than monitors: requests run on virtual threads, which a monitor would pin while downloading
+    private static final class Fetch {
+        final ReentrantLock lock = new ReentrantLock();
+        // Requests holding or waiting for the lock; only changed inside fetches.compute
+        int users;
+    }
+
+    private final Map<String, Fetch> fetches = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient http = HttpClient.newBuilder()
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private HttpServer server;
+
+    private final AtomicLong bytesFromCache = new AtomicLong();
+    private final AtomicLong bytesFromUpstream = new AtomicLong();
+
+    public MediaCacheProxy(Path directory) {
+        cache = new SegmentCache(directory, MAX_BYTES);
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equals(System.getProperty("videoplayer.mediaCache"));
+    }
+
+    // Adaptive-streaming manifests reference their segments by relative URL, which a proxy would break
+    public static boolean canProxy(String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        return lower.startsWith("http") && !lower.contains(".m3u8") && !lower.contains(".mpd") && !lower.contains("manifest");
+    }
+
+    // Returns the local URL that serves upstreamUrl; registering the same key again updates the upstream URL
+    public synchronized String register(String cacheKey, String upstreamUrl) throws IOException {
+        if (server == null) {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/media/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+            VideoPlayerMod.LOGGER.info("Media cache proxy listening on port {}", server.getAddress().getPort());
+        }
+        String key = hash(cacheKey);
+        MediaInfo info = media.computeIfAbsent(key, this::loadInfo);
+        info.upstream = upstreamUrl;
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/media/" + key;
+    }
+
+    // The upstream URL behind a proxy URL, or null if it isn't one
+    public String upstreamOf(String url) {
+        HttpServer server = this.server;
+        if (server == null || url == null) {
+            return null;
+        }
+        String prefix = "http://127.0.0.1:" + server.getAddress().getPort() + "/media/";
+        if (!url.startsWith(prefix)) {
+            return null;
+        }
+        MediaInfo info = media.get(url.substring(prefix.length()));
+        return info != null ? info.upstream : null;
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            String key = exchange.getRequestURI().getPath().substring("/media/".length());
+            MediaInfo info = media.get(key);
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            if (info == null || !head && !"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String userAgent = exchange.getRequestHeaders().getFirst("User-Agent");
+            String range = exchange.getRequestHeaders().getFirst("Range");
+
+            if (info.length < 0 && !info.rangesUnsupported) {
+                // The first segment's response tells the total length
+                segment(key, info, 0, userAgent);
+            }
+            if (info.rangesUnsupported) {
+                passThrough(exchange, info, range, userAgent);
+                return;
+            }
+
+            long length = info.length;
+            long start = 0;
+            long end = length - 1;
+            Matcher matcher = range != null ? RANGE.matcher(range.trim()) : null;
+            boolean partial = matcher != null && matcher.matches()
+                && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty());
+            if (partial) {
+                if (matcher.group(1).isEmpty()) {
+                    // Suffix range: the last n bytes
+                    start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+                } else {
+                    start = Long.parseLong(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, Long.parseLong(matcher.group(2)));
+                    }
+                }
+            }
+            if (start > end) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+
+            long count = end - start + 1;
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            if (info.contentType != null) {
+                exchange.getResponseHeaders().set("Content-Type", info.contentType);
+            }
+            if (partial) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+            if (head) {
+                exchange.getResponseHeaders().set("Content-Length", Long.toString(count));
+                exchange.sendResponseHeaders(partial ? 206 : 200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(partial ? 206 : 200, count);
+
+            WritableByteChannel body = Channels.newChannel(exchange.getResponseBody());
+            long position = start;
+            while (position <= end) {
+                long index = position / SegmentCache.SEGMENT_SIZE;
+                ByteBuffer segment = segment(key, info, index, userAgent);
+                int offset = (int) (position - index * SegmentCache.SEGMENT_SIZE);
+                int available = segment.limit() - offset;
+                if (available <= 0) {
+                    throw new IOException("Segment " + index + " of " + key + " is short");
+                }
+                int bytes = (int) Math.min(available, end - position + 1);
+                ByteBuffer slice = segment.slice(offset, bytes);
+                while (slice.hasRemaining()) {
+                    body.write(slice);
+                }
+                position += bytes;
+            }
+        } catch (IOException e) {
+            if (exchange.getResponseCode() == -1) {
+                // Failed before answering, e.g. the upstream URL expired
+                VideoPlayerMod.LOGGER.warn("Media cache could not serve {}: {}", exchange.getRequestURI(), e.getMessage());
+                try {
+                    exchange.sendResponseHeaders(502, -1);
+                } catch (IOException ignored) {
+                    // Client already gone
+                }
+            } else {
+                // VLC drops connections whenever it seeks
+                VideoPlayerMod.LOGGER.debug("Media cache request ended: {}", e.getMessage());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // A cached segment mapped from disk, or a fetched one after it has been stored
+    private ByteBuffer segment(String key, MediaInfo info, long index, String userAgent) throws IOException {
+        ByteBuffer mapped = cache.map(key, index);
+        if (mapped != null && info.length >= 0) {
+            bytesFromCache.addAndGet(mapped.limit());
+            return mapped;
+        }
+
+        // One download per segment, however many requests want it. The entry stays
+        // until its last waiter is done, so a request arriving after a failed download
+        // queues behind the retry instead of starting a second one next to it
+        String fetchKey = key + "/" + index;
+        Fetch fetch = fetches.compute(fetchKey, (k, existing) -> {
+            Fetch entry = existing != null ? existing : new Fetch();
+            entry.users++;
+            return entry;
+        });
+        fetch.lock.lock();
+        try {
+            mapped = cache.map(key, index);
+            if (mapped != null && info.length >= 0) {
+                bytesFromCache.addAndGet(mapped.limit());
+                return mapped;
+            }
+            return fetch(key, info, index, userAgent);
+        } finally {
+            fetch.lock.unlock();
+            fetches.computeIfPresent(fetchKey, (k, entry) -> --entry.users == 0 ? null : entry);
+        }
+    }
+
+    private ByteBuffer fetch(String key, MediaInfo info, long index, String userAgent) throws IOException {
+        String upstream = info.upstream;
+        if (upstream == null) {
+            throw new IOException("No upstream URL for " + key);
+        }
+        long start = index * SegmentCache.SEGMENT_SIZE;
+        long end = start + SegmentCache.SEGMENT_SIZE - 1;
+        if (info.length >= 0) {
+            end = Math.min(end, info.length - 1);
+        }
+
+        HttpResponse<InputStream> response = send(upstream, "bytes=" + start + "-" + end, userAgent);
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 206) {
+                if (response.statusCode() == 200) {
+                    VideoPlayerMod.LOGGER.info("Upstream ignores range requests, not caching {}", key);
+                    info.rangesUnsupported = true;
+                    return ByteBuffer.allocate(0);
+                }
+                throw new IOException("Upstream answered " + response.statusCode());
+            }
+
+            String contentRange = response.headers().firstValue("Content-Range").orElse("");
+            Matcher matcher = CONTENT_RANGE.matcher(contentRange);
+            if (!matcher.matches() || Long.parseLong(matcher.group(1)) != start || "*".equals(matcher.group(3))) {
+                throw new IOException("Unexpected Content-Range: " + contentRange);
+            }
+            long total = Long.parseLong(matcher.group(3));
+            boolean changed = info.length >= 0 && total != info.length;
+            if (changed) {
+                // A re-resolved URL can point at another format or encoding of the same page;
+                // its bytes must never be spliced onto segments of the old file
+                VideoPlayerMod.LOGGER.info("Upstream of {} changed length from {} to {}, dropping its cached segments",
+                    key, info.length, total);
+                cache.removeMedia(key);
+                Files.deleteIfExists(cache.mediaDirectory(key).resolve("media.json"));
+            }
+            if (info.length < 0 || changed) {
+                info.length = total;
+                info.contentType = response.headers().firstValue("Content-Type").orElse(null);
+                saveInfo(key, info);
+            }
+
+            int expected = (int) (Math.min(end, info.length - 1) - start + 1);
+            byte[] data = in.readNBytes(expected);
+            if (data.length != expected) {
+                throw new IOException("Upstream ended after " + data.length + " of " + expected + " bytes");
+            }
+            cache.put(key, index, data, data.length);
+            bytesFromUpstream.addAndGet(data.length);
+            if (changed) {
+                // The response in progress was sized for the old file; VLC reconnects and gets the new length
+                throw new IOException("Upstream of " + key + " changed, restarting");
+            }
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    // Servers without range support get their response streamed through as is, uncached
+    private void passThrough(HttpExchange exchange, MediaInfo info, String range, String userAgent) throws IOException {
+        HttpResponse<InputStream> response = send(info.upstream, range, userAgent);
+        try (InputStream in = response.body()) {
+            response.headers().firstValue("Content-Type").ifPresent(value -> exchange.getResponseHeaders().set("Content-Type", value));
+            response.headers().firstValue("Content-Range").ifPresent(value -> exchange.getResponseHeaders().set("Content-Range", value));
+            long length = response.headers().firstValueAsLong("Content-Length").orElse(0);
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(response.statusCode(), head ? -1 : length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    in.transferTo(out);
+                }
+            }
+        }
+    }
+
+    private HttpResponse<InputStream> send(String url, String range, String userAgent) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET();
+        if (range != null) {
+            request.header("Range", range);
+        }
+        if (userAgent != null) {
+            request.header("User-Agent", userAgent);
+        }
+        try {
+            return http.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private MediaInfo loadInfo(String key) {
+        Path file = cache.mediaDirectory(key).resolve("media.json");
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                MediaInfo info = GSON.fromJson(reader, MediaInfo.class);
+                if (info != null) {
+                    return info;
+                }
+            } catch (Exception e) {
+                VideoPlayerMod.LOGGER.warn("Ignoring unreadable {}: {}", file, e.getMessage());
+            }
+        }
+        return new MediaInfo();
+    }
+
+    private void saveInfo(String key, MediaInfo info) {
+        Path file = cache.mediaDirectory(key).resolve("media.json");
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                GSON.toJson(info, writer);
+            }
+        } catch (IOException e) {
+            VideoPlayerMod.LOGGER.warn("Failed to save {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String hash(String cacheKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(cacheKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getBytesFromCache() {
+        return bytesFromCache.get();
+    }
+
+    public long getBytesFromUpstream() {
+        return bytesFromUpstream.get();
+    }
+
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        VideoPlayerMod.LOGGER.info("Media cache served {} MB from disk, {} MB downloaded",
+            bytesFromCache.get() / (1024 * 1024), bytesFromUpstream.get() / (1024 * 1024));
+        executor.shutdownNow();
+    }
+}
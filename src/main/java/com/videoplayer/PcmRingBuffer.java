@@ -0,0 +1,117 @@
+package com.videoplayer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free single-producer, single-consumer ring of PCM bytes in native memory.
+// VLC's audio thread writes, the audio pump reads. Positions only grow; each side
+// publishes its own position with a release store and reads the other's with a
+// volatile load, so neither side ever blocks. A write that doesn't fit is dropped
+// whole rather than waiting, and counted.
+public class PcmRingBuffer {
+    private final long address;
+    private final int capacity;
+    private final int mask;
+
+    // Total bytes written and read; written only by the producer and consumer respectively
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    // Set by the producer on a flush; the consumer skips everything before it
+    private final AtomicLong discardBefore = new AtomicLong();
+
+    private final AtomicLong overruns = new AtomicLong();
+
+    // Capacity is rounded up to a power of two
+    public PcmRingBuffer(int minCapacity) {
+        capacity = Integer.highestOneBit(Math.max(1024, minCapacity) - 1) << 1;
+        mask = capacity - 1;
+        address = MemoryUtil.nmemAlloc(capacity);
+        if (address == 0) {
+            throw new OutOfMemoryError("Could not allocate " + capacity + " byte PCM ring");
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Producer: copies all of it or, if it doesn't fit, none of it
+    public boolean write(long source, int bytes) {
+        long write = writePosition.get();
+        long read = readPosition.get();
+        if (bytes > capacity - (write - read)) {
+            overruns.incrementAndGet();
+            return false;
+        }
+        int offset = (int) (write & mask);
+        int first = Math.min(bytes, capacity - offset);
+        MemoryUtil.memCopy(source, address + offset, first);
+        if (first < bytes) {
+            MemoryUtil.memCopy(source + first, address, bytes - first);
+        }
+        writePosition.lazySet(write + bytes);
+        return true;
+    }
+
+    // Producer: everything written so far is dropped by the consumer's next read
+    public void flush() {
+        discardBefore.lazySet(writePosition.get());
+    }
+
+    // Consumer: bytes ready to read
+    public int available() {
+        skipFlushed();
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    // Consumer: copies up to maxBytes out and returns how many
+    public int read(long destination, int maxBytes) {
+        skipFlushed();
+        long read = readPosition.get();
+        int bytes = (int) Math.min(maxBytes, writePosition.get() - read);
+        int offset = (int) (read & mask);
+        int first = Math.min(bytes, capacity - offset);
+        MemoryUtil.memCopy(address + offset, destination, first);
+        if (first < bytes) {
+            MemoryUtil.memCopy(address, destination + first, bytes - first);
+        }
+        readPosition.lazySet(read + bytes);
+        return bytes;
+    }
+
+    // Consumer: drops up to maxBytes, e.g. audio that would play too late
+    public int skip(int maxBytes) {
+        skipFlushed();
+        long read = readPosition.get();
+        int bytes = (int) Math.min(maxBytes, writePosition.get() - read);
+        readPosition.lazySet(read + bytes);
+        return bytes;
+    }
+
+    // Stream position of the next byte the consumer reads; safe from any thread
+    public long getReadPosition() {
+        return Math.max(readPosition.get(), discardBefore.get());
+    }
+
+    // Producer: the stream position the next write lands at
+    public long getWritePosition() {
+        return writePosition.get();
+    }
+
+    private void skipFlushed() {
+        long discard = discardBefore.get();
+        if (readPosition.get() < discard) {
+            readPosition.lazySet(discard);
+        }
+    }
+
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    // Once both sides are done
+    public void free() {
+        MemoryUtil.nmemFree(address);
+    }
+}
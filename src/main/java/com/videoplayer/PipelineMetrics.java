@@ -0,0 +1,147 @@
+package com.videoplayer;
+
+// Live timings and counters for one player's video pipeline. Writers are the VLC
+// thread (decode/copy), the conversion stage and the render thread (upload); readers are the
+// debug overlay and the periodic JFR event, so values are smoothed and volatile.
+public class PipelineMetrics {
+    private static final double SMOOTHING = 0.1;
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    // Smoothed durations in nanoseconds
+    private volatile double displayCopyNanos;
+    private volatile double decodeWriteNanos;
+    private volatile double conversionNanos;
+    private volatile double uploadNanos;
+    private volatile double latencyNanos;
+    private volatile double conversionLatencyNanos;
+
+    // Per-second rates, refreshed by sample()
+    private volatile double decodeRate;
+    private volatile double uploadRate;
+    private volatile long offHeapBytes;
+
+    // Visibility governor state
+    private volatile boolean videoSuspended;
+    private volatile long suspendedNanos;
+    private volatile double cpuSavedPercent = -1;
+
+    // Render thread only
+    private long windowStart;
+    private long windowPublished;
+    private long windowUploads;
+    private volatile long uploads;
+
+    public void recordDisplayCopy(long nanos) {
+        displayCopyNanos = smooth(displayCopyNanos, nanos);
+    }
+
+    public void recordDecodeWrite(long nanos) {
+        decodeWriteNanos = smooth(decodeWriteNanos, nanos);
+    }
+
+    public void recordConversion(long nanos) {
+        conversionNanos = smooth(conversionNanos, nanos);
+    }
+
+    // Decoder publish to upload-ready, including time waiting for a worker
+    public void recordConversionLatency(long latency) {
+        conversionLatencyNanos = smooth(conversionLatencyNanos, latency);
+    }
+
+    public void recordUpload(long nanos, long latency) {
+        uploadNanos = smooth(uploadNanos, nanos);
+        latencyNanos = smooth(latencyNanos, latency);
+        uploads++;
+    }
+
+    public void setOffHeapBytes(long bytes) {
+        offHeapBytes = bytes;
+    }
+
+    public void setVideoSuspended(boolean suspended) {
+        videoSuspended = suspended;
+    }
+
+    public void setSuspendedNanos(long nanos) {
+        suspendedNanos = nanos;
+    }
+
+    public void setCpuSavedPercent(double percent) {
+        cpuSavedPercent = percent;
+    }
+
+    // Called once per render frame with the decoder's published frame count
+    public void sample(long now, long publishedFrames) {
+        if (windowStart == 0) {
+            windowStart = now;
+            windowPublished = publishedFrames;
+            windowUploads = uploads;
+            return;
+        }
+
+        long elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            decodeRate = (publishedFrames - windowPublished) * 1e9 / elapsed;
+            uploadRate = (uploads - windowUploads) * 1e9 / elapsed;
+            windowStart = now;
+            windowPublished = publishedFrames;
+            windowUploads = uploads;
+        }
+    }
+
+    private static double smooth(double current, double sample) {
+        return current == 0 ? sample : current + (sample - current) * SMOOTHING;
+    }
+
+    public double getDisplayCopyMillis() {
+        return displayCopyNanos / 1_000_000.0;
+    }
+
+    public double getDecodeWriteMillis() {
+        return decodeWriteNanos / 1_000_000.0;
+    }
+
+    public double getConversionMillis() {
+        return conversionNanos / 1_000_000.0;
+    }
+
+    public double getUploadMillis() {
+        return uploadNanos / 1_000_000.0;
+    }
+
+    public double getLatencyMillis() {
+        return latencyNanos / 1_000_000.0;
+    }
+
+    public double getConversionLatencyMillis() {
+        return conversionLatencyNanos / 1_000_000.0;
+    }
+
+    public double getDecodeRate() {
+        return decodeRate;
+    }
+
+    public double getUploadRate() {
+        return uploadRate;
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public boolean isVideoSuspended() {
+        return videoSuspended;
+    }
+
+    public double getSuspendedSeconds() {
+        return suspendedNanos / 1e9;
+    }
+
+    public double getCpuSavedPercent() {
+        return cpuSavedPercent;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+}
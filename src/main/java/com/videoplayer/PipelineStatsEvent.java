@@ -0,0 +1,81 @@
+package com.videoplayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+// Periodic snapshot of the pipeline counters, so a recording shows drops and
+// memory next to game frame spikes without enabling the per-frame events
+@Name("com.videoplayer.PipelineStats")
+@Label("Video Pipeline Statistics")
+@Category({"Video Player", "Pipeline"})
+@Description("Rates, timings and counters of the video frame pipeline")
+@Period("1 s")
+@StackTrace(false)
+public class PipelineStatsEvent extends jdk.jfr.Event {
+    @Label("Player")
+    public String player;
+
+    @Label("Decode Rate")
+    public double decodeRate;
+
+    @Label("Upload Rate")
+    public double uploadRate;
+
+    @Label("Published Frames")
+    public long publishedFrames;
+
+    @Label("Overwritten Frames")
+    @Description("Frames replaced in the mailbox before the renderer took them")
+    public long overwrittenFrames;
+
+    @Label("Dropped Frames")
+    public long droppedFrames;
+
+    @Label("Stale Converted Frames")
+    @Description("Frames converted off the render thread but replaced by a newer one before upload")
+    public long staleConvertedFrames;
+
+    @Label("Video Suspended")
+    @Description("Video decoding is off because nothing draws this player")
+    public boolean videoSuspended;
+
+    @Label("CPU Saved")
+    @Description("Process CPU, in percent of one core, saved while video decoding is suspended; -1 until measured")
+    public double cpuSavedPercent;
+
+    @Label("Audio Latency")
+    @Description("How far the audio coming out of OpenAL is behind VLC's schedule, in milliseconds")
+    public double audioLatencyMillis;
+
+    @Label("Audio Underruns")
+    public long audioUnderruns;
+
+    @Label("Audio Overruns")
+    @Description("Audio blocks dropped because the ring buffer was full or they would have played too late")
+    public long audioOverruns;
+
+    @Label("A/V Offset")
+    @Description("Average of the master clock minus the presented frame's time, in milliseconds; positive means video is late")
+    public double avOffsetMillis;
+
+    @Label("Presentation Jitter")
+    @Description("Average deviation of the spacing between presented frames from their timestamp spacing, in milliseconds")
+    public double presentJitterMillis;
+
+    @Label("Repeated Frames")
+    @Description("Game frames that kept showing the current frame because the next one was not due yet")
+    public long repeatedFrames;
+
+    @Label("Late Frames")
+    @Description("Frames skipped at presentation because a newer one was already due")
+    public long lateFrames;
+
+    @Label("Off-Heap Memory")
+    @DataAmount
+    public long offHeapBytes;
+}
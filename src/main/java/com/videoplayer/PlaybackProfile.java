@@ -0,0 +1,88 @@
+package com.videoplayer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One set of VLC decoding and caching settings, as stored in profiles.json. The same
+// settings go to the factory at startup (--option) and to every media (:option), so a
+// profile picked in game applies to the next video without restarting VLC.
+public class PlaybackProfile {
+    String name;
+    // avcodec-hw module: "any", "none", or a backend such as "vaapi", "d3d11va", "dxva2", "videotoolbox"
+    String hardwareDecoding = "any";
+    // 0 lets VLC pick
+    int decoderThreads = 0;
+    int fileCachingMs = 300;
+    int networkCachingMs = 1000;
+    // 0 none, 1 non-ref, 2 bidir, 3 non-key, 4 all
+    int skipLoopFilter = 0;
+    // avcodec-fast and avcodec-hurry-up: trade accuracy for speed
+    boolean fastDecode = false;
+    // Decode never larger than this, 0 for no cap
+    int maxDecodeHeight = 0;
+
+    public PlaybackProfile() {
+    }
+
+    PlaybackProfile(String name, String hardwareDecoding, int decoderThreads, int fileCachingMs, int networkCachingMs,
+                    int skipLoopFilter, boolean fastDecode, int maxDecodeHeight) {
+        this.name = name;
+        this.hardwareDecoding = hardwareDecoding;
+        this.decoderThreads = decoderThreads;
+        this.fileCachingMs = fileCachingMs;
+        this.networkCachingMs = networkCachingMs;
+        this.skipLoopFilter = skipLoopFilter;
+        this.fastDecode = fastDecode;
+        this.maxDecodeHeight = maxDecodeHeight;
+    }
+
+    // Most expensive first; auto-tuning walks down this list. The cheaper profiles also
+    // cap decoder threads, leaving cores to the game once the decode is small anyway
+    static List<PlaybackProfile> defaults() {
+        List<PlaybackProfile> profiles = new ArrayList<>();
+        profiles.add(new PlaybackProfile("quality", "any", 0, 300, 1000, 0, false, 0));
+        profiles.add(new PlaybackProfile("balanced", "any", 0, 600, 1500, 1, false, 1080));
+        profiles.add(new PlaybackProfile("low-end", "any", 2, 1000, 3000, 4, true, 720));
+        profiles.add(new PlaybackProfile("minimal", "any", 1, 1500, 5000, 4, true, 480));
+        return profiles;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxDecodeHeight() {
+        return maxDecodeHeight;
+    }
+
+    public String[] factoryOptions() {
+        return options("--");
+    }
+
+    public String[] mediaOptions() {
+        return options(":");
+    }
+
+    private String[] options(String prefix) {
+        List<String> options = new ArrayList<>();
+        if (hardwareDecoding != null && !hardwareDecoding.isEmpty()) {
+            options.add(prefix + "avcodec-hw=" + hardwareDecoding);
+        }
+        if (decoderThreads > 0) {
+            options.add(prefix + "avcodec-threads=" + decoderThreads);
+        }
+        options.add(prefix + "file-caching=" + fileCachingMs);
+        options.add(prefix + "network-caching=" + networkCachingMs);
+        options.add(prefix + "avcodec-skiploopfilter=" + skipLoopFilter);
+        if (fastDecode) {
+            options.add(prefix + "avcodec-fast");
+            options.add(prefix + "avcodec-hurry-up");
+        }
+        return options.toArray(new String[0]);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
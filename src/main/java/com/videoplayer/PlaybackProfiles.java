@@ -0,0 +1,148 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// The playback profiles from config/videoplayer/profiles.json and which one is in use.
+// "auto" starts at the profile auto-tuning last settled on and lets ProfileAutoTuner
+// step down to cheaper profiles; picking "auto" again in game starts over at the top.
+public class PlaybackProfiles {
+    public static final String AUTO = "auto";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    // Persisted
+    private static class Config {
+        String selected = AUTO;
+        String autoProfile;
+        List<PlaybackProfile> profiles;
+    }
+
+    private final Path file;
+    private final Config config;
+    private final List<Consumer<PlaybackProfile>> listeners = new CopyOnWriteArrayList<>();
+
+    public PlaybackProfiles(Path file) {
+        this.file = file;
+        this.config = load(file);
+        String startup = System.getProperty("videoplayer.profile");
+        if (startup != null) {
+            config.selected = startup;
+        }
+    }
+
+    private static Config load(Path file) {
+        Config config = null;
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                config = GSON.fromJson(reader, Config.class);
+            } catch (Exception e) {
+                VideoPlayerMod.LOGGER.warn("Ignoring unreadable {}: {}", file, e.getMessage());
+            }
+        }
+        boolean missing = config == null || config.profiles == null || config.profiles.isEmpty();
+        if (config == null) {
+            config = new Config();
+        }
+        if (missing) {
+            // Written out so the profiles can be edited
+            config.profiles = PlaybackProfile.defaults();
+            save(file, config);
+        }
+        return config;
+    }
+
+    public synchronized PlaybackProfile getActive() {
+        return find(isAuto() ? config.autoProfile : config.selected);
+    }
+
+    public synchronized boolean isAuto() {
+        return config.selected == null || AUTO.equals(config.selected);
+    }
+
+    // Text for the in-game button, e.g. "auto (balanced)"
+    public synchronized String describe() {
+        return isAuto() ? AUTO + " (" + getActive().getName() + ")" : getActive().getName();
+    }
+
+    // Cycles auto -> first profile -> ... -> last profile -> auto
+    public void selectNext() {
+        PlaybackProfile active;
+        synchronized (this) {
+            if (isAuto()) {
+                config.selected = config.profiles.get(0).name;
+            } else {
+                int index = config.profiles.indexOf(getActive());
+                if (index + 1 < config.profiles.size()) {
+                    config.selected = config.profiles.get(index + 1).name;
+                } else {
+                    config.selected = AUTO;
+                    config.autoProfile = config.profiles.get(0).name;
+                }
+            }
+            active = getActive();
+            save(file, config);
+        }
+        VideoPlayerMod.LOGGER.info("Playback profile: {}", describe());
+        notifyListeners(active);
+    }
+
+    // Auto mode only: moves to the next cheaper profile, false if already at the cheapest
+    public boolean stepDown() {
+        PlaybackProfile active;
+        synchronized (this) {
+            if (!isAuto()) {
+                return false;
+            }
+            int index = config.profiles.indexOf(getActive());
+            if (index + 1 >= config.profiles.size()) {
+                return false;
+            }
+            config.autoProfile = config.profiles.get(index + 1).name;
+            active = getActive();
+            save(file, config);
+        }
+        notifyListeners(active);
+        return true;
+    }
+
+    public void addListener(Consumer<PlaybackProfile> listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners(PlaybackProfile profile) {
+        for (Consumer<PlaybackProfile> listener : listeners) {
+            listener.accept(profile);
+        }
+    }
+
+    // Unknown names fall back to the first (most expensive) profile
+    private PlaybackProfile find(String name) {
+        for (PlaybackProfile profile : config.profiles) {
+            if (profile.name != null && profile.name.equals(name)) {
+                return profile;
+            }
+        }
+        return config.profiles.get(0);
+    }
+
+    private static void save(Path file, Config config) {
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                GSON.toJson(config, writer);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Failed to save playback profiles: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.videoplayer;
+
+import uk.co.caprica.vlcj.media.Media;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Queue of videos played one after another on a VideoPlayer. The next few entries
+// are prepared in the background while the current one plays: URLs are resolved to
+// stream URLs and every entry is parsed by VLC, so by the time the current video
+// finishes the next one starts from a ready Media with its size already known.
+public class PlaylistQueue {
+    // How many upcoming entries are kept prepared
+    private static final int LOOKAHEAD = Integer.getInteger("videoplayer.playlist.lookahead", 2);
+
+    // What the queue plays on: a VideoPlayer in game, a stub in tests
+    public interface Target {
+        void addFinishedListener(Runnable listener);
+
+        String getCurrentMrl();
+
+        // Blocking, on the preparer thread: opens mrl ahead of time, or returns null if it can't be
+        Prepared prepare(String mrl);
+
+        void playPrepared(String mrl, Prepared prepared);
+    }
+
+    // An entry opened ahead of time: VLC's parsed media (none for a test target) and what parsing found
+    public static class Prepared {
+        final Media media;
+        final int width;
+        final int height;
+        final long durationMillis;
+
+        public Prepared(Media media, int width, int height, long durationMillis) {
+            this.media = media;
+            this.width = width;
+            this.height = height;
+            this.durationMillis = durationMillis;
+        }
+
+        void release() {
+            if (media != null) {
+                media.release();
+            }
+        }
+    }
+
+    public enum State {
+        PENDING,
+        PREPARING,
+        READY,
+        FAILED
+    }
+
+    public static class Entry {
+        private final String source;
+        private volatile State state = State.PENDING;
+        private volatile String mrl;
+        private volatile Prepared prepared;
+        private volatile int width;
+        private volatile int height;
+        private volatile long durationMillis;
+
+        Entry(String source) {
+            this.source = source;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public boolean isUrl() {
+            return isUrl(source);
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public String getMrl() {
+            return mrl;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        static boolean isUrl(String source) {
+            return source.startsWith("http://") || source.startsWith("https://");
+        }
+
+        void release() {
+            Prepared current = prepared;
+            prepared = null;
+            if (current != null) {
+                current.release();
+            }
+            if (state == State.READY) {
+                state = State.PENDING;
+            }
+        }
+    }
+
+    private final Target target;
+    // Page URL to a URL the target can play, null if it can't be resolved
+    private final Function<String, String> resolver;
+    private final List<Entry> entries = new ArrayList<>();
+    private int currentIndex = -1;
+
+    // One entry at a time, so preparation never competes with itself for the network
+    private final ExecutorService preparer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Playlist-Prepare");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PlaylistQueue(Target target, Function<String, String> resolver) {
+        this.target = target;
+        this.resolver = resolver;
+        target.addFinishedListener(this::onFinished);
+    }
+
+    // Adds a local file path or page URL; starts playing if nothing is queued yet
+    public synchronized void add(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            return;
+        }
+        entries.add(new Entry(source.trim()));
+        if (currentIndex < 0) {
+            play(entries.size() - 1);
+        } else {
+            prepareAhead();
+        }
+    }
+
+    public synchronized void next() {
+        if (currentIndex + 1 < entries.size()) {
+            play(currentIndex + 1);
+        }
+    }
+
+    public synchronized void previous() {
+        if (currentIndex > 0) {
+            play(currentIndex - 1);
+        }
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : entries) {
+            releaseLater(entry);
+        }
+        entries.clear();
+        currentIndex = -1;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    public synchronized Entry getCurrent() {
+        return currentIndex >= 0 && currentIndex < entries.size() ? entries.get(currentIndex) : null;
+    }
+
+    public void close() {
+        clear();
+        preparer.shutdown();
+    }
+
+    private void play(int index) {
+        currentIndex = index;
+        Entry entry = entries.get(index);
+
+        // Queued behind any preparation already running, which is usually this entry
+        preparer.execute(() -> {
+            prepare(entry);
+            synchronized (this) {
+                if (getCurrent() != entry) {
+                    return;
+                }
+                if (entry.state == State.READY) {
+                    VideoPlayerMod.LOGGER.info("Playing playlist entry {}: {}", index + 1, entry.source);
+                    target.playPrepared(entry.mrl, entry.prepared);
+                } else {
+                    VideoPlayerMod.LOGGER.warn("Skipping playlist entry that could not be opened: {}", entry.source);
+                    next();
+                }
+            }
+        });
+        prepareAhead();
+        releaseBehind();
+    }
+
+    private void onFinished() {
+        Entry entry = getCurrent();
+        // Only advance when the video that finished is ours, not a directly loaded one
+        if (entry != null && entry.mrl != null && entry.mrl.equals(target.getCurrentMrl())) {
+            next();
+        }
+    }
+
+    private void prepareAhead() {
+        int end = Math.min(entries.size(), currentIndex + 1 + LOOKAHEAD);
+        for (int i = currentIndex + 1; i < end; i++) {
+            Entry entry = entries.get(i);
+            if (entry.state == State.PENDING) {
+                entry.state = State.PREPARING;
+                preparer.execute(() -> prepare(entry));
+            }
+        }
+    }
+
+    // Parsed Media holds native resources, so only keep them around the current entry
+    private void releaseBehind() {
+        for (int i = 0; i < entries.size(); i++) {
+            if (i < currentIndex || i > currentIndex + LOOKAHEAD) {
+                releaseLater(entries.get(i));
+            }
+        }
+    }
+
+    private void releaseLater(Entry entry) {
+        if (entry.prepared != null) {
+            preparer.execute(entry::release);
+        }
+    }
+
+    // Runs on the preparer thread
+    private void prepare(Entry entry) {
+        if (entry.state == State.READY || entry.state == State.FAILED) {
+            return;
+        }
+        entry.state = State.PREPARING;
+        long start = System.nanoTime();
+
+        String mrl = entry.mrl;
+        if (mrl == null) {
+            mrl = entry.isUrl() ? resolver.apply(entry.source) : entry.source;
+        }
+        if (mrl == null) {
+            entry.state = State.FAILED;
+            return;
+        }
+        entry.mrl = mrl;
+
+        Prepared prepared = target.prepare(mrl);
+        if (prepared == null) {
+            entry.state = State.FAILED;
+            return;
+        }
+        entry.width = prepared.width;
+        entry.height = prepared.height;
+        entry.durationMillis = prepared.durationMillis;
+        entry.prepared = prepared;
+        entry.state = State.READY;
+
+        VideoPlayerMod.LOGGER.info("Prepared {} ({}x{}) in {} ms", entry.source, entry.width, entry.height,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+}
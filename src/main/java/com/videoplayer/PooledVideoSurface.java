@@ -0,0 +1,130 @@
+package com.videoplayer;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+import uk.co.caprica.vlcj.binding.internal.libvlc_display_callback_t;
+import uk.co.caprica.vlcj.binding.internal.libvlc_lock_callback_t;
+import uk.co.caprica.vlcj.binding.internal.libvlc_unlock_callback_t;
+import uk.co.caprica.vlcj.binding.internal.libvlc_video_cleanup_cb;
+import uk.co.caprica.vlcj.binding.internal.libvlc_video_format_cb;
+import uk.co.caprica.vlcj.binding.lib.LibVlc;
+import uk.co.caprica.vlcj.player.base.MediaPlayer;
+import uk.co.caprica.vlcj.player.embedded.videosurface.VideoSurface;
+import uk.co.caprica.vlcj.player.embedded.videosurface.VideoSurfaceAdapters;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormat;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormatCallback;
+
+import java.nio.charset.StandardCharsets;
+
+// Video surface that makes VLC decode straight into FrameExchange slots.
+// vlcj's CallbackVideoSurface decodes into its own buffers and hands them to
+// display(), which forces a copy per frame; here the lock callback gives VLC
+// the exchange's back slot and display simply publishes it.
+public class PooledVideoSurface extends VideoSurface {
+    private final BufferFormatCallback bufferFormatCallback;
+    private final FrameExchange frames;
+    private final PipelineMetrics metrics;
+
+    // Held in fields so JNA callbacks are never garbage collected while VLC uses them
+    private final libvlc_video_format_cb formatCallback = new FormatCallback();
+    private final libvlc_video_cleanup_cb cleanupCallback = new CleanupCallback();
+    private final libvlc_lock_callback_t lockCallback = new LockCallback();
+    private final libvlc_unlock_callback_t unlockCallback = new UnlockCallback();
+    private final libvlc_display_callback_t displayCallback = new DisplayCallback();
+
+    // Only touched on VLC's video output thread
+    private BufferFormat bufferFormat;
+    private FrameMailbox.Frame lockedFrame;
+    private long lockTime;
+    private FrameDecodedEvent decodedEvent;
+
+    public PooledVideoSurface(BufferFormatCallback bufferFormatCallback, FrameExchange frames, PipelineMetrics metrics) {
+        super(VideoSurfaceAdapters.getVideoSurfaceAdapter());
+        this.bufferFormatCallback = bufferFormatCallback;
+        this.frames = frames;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void attach(MediaPlayer mediaPlayer) {
+        LibVlc.libvlc_video_set_format_callbacks(mediaPlayer.mediaPlayerInstance(), formatCallback, cleanupCallback);
+        LibVlc.libvlc_video_set_callbacks(mediaPlayer.mediaPlayerInstance(), lockCallback, unlockCallback, displayCallback, null);
+    }
+
+    private class FormatCallback implements libvlc_video_format_cb {
+        @Override
+        public int format(PointerByReference opaque, PointerByReference chroma, IntByReference width,
+                          IntByReference height, PointerByReference pitches, PointerByReference lines) {
+            BufferFormat format = bufferFormatCallback.getBufferFormat(width.getValue(), height.getValue());
+            if (format == null || format.getWidth() <= 0 || format.getHeight() <= 0) {
+                return 0;
+            }
+
+            // Slots are tightly packed RGBA/BGRA, one plane each
+            int[] pitchValues = format.getPitches();
+            int[] lineValues = format.getLines();
+            if (pitchValues.length != 1 || pitchValues[0] != format.getWidth() * 4) {
+                VideoPlayerMod.LOGGER.error("Unsupported buffer format for direct decode: {}", format.getChroma());
+                return 0;
+            }
+
+            byte[] chromaBytes = format.getChroma().getBytes(StandardCharsets.US_ASCII);
+            chroma.getPointer().write(0, chromaBytes, 0, Math.min(chromaBytes.length, 4));
+            width.setValue(format.getWidth());
+            height.setValue(format.getHeight());
+            pitches.getPointer().write(0, pitchValues, 0, pitchValues.length);
+            lines.getPointer().write(0, lineValues, 0, lineValues.length);
+
+            bufferFormat = format;
+            return 1;
+        }
+    }
+
+    private class CleanupCallback implements libvlc_video_cleanup_cb {
+        @Override
+        public void cleanup(Pointer opaque) {
+            bufferFormat = null;
+        }
+    }
+
+    private class LockCallback implements libvlc_lock_callback_t {
+        @Override
+        public Pointer lock(Pointer opaque, PointerByReference planes) {
+            BufferFormat format = bufferFormat;
+            FrameMailbox.Frame frame = frames.beginWrite(format.getWidth(), format.getHeight(), format.getChroma());
+            planes.getPointer().setPointer(0, new Pointer(frame.getAddress()));
+            lockedFrame = frame;
+            lockTime = System.nanoTime();
+            decodedEvent = new FrameDecodedEvent();
+            decodedEvent.begin();
+            return null;
+        }
+    }
+
+    private class UnlockCallback implements libvlc_unlock_callback_t {
+        @Override
+        public void unlock(Pointer opaque, Pointer picture, Pointer plane) {
+            // Nothing to do: the slot stays owned by this thread until display publishes it
+        }
+    }
+
+    private class DisplayCallback implements libvlc_display_callback_t {
+        @Override
+        public void display(Pointer opaque, Pointer picture) {
+            FrameMailbox.Frame frame = lockedFrame;
+            metrics.recordDecodeWrite(System.nanoTime() - lockTime);
+
+            FrameDecodedEvent event = decodedEvent;
+            if (event != null && event.shouldCommit() && frame != null) {
+                event.width = frame.getWidth();
+                event.height = frame.getHeight();
+                event.bytes = frame.getByteSize();
+                event.copied = false;
+                event.commit();
+            }
+
+            frames.publish();
+        }
+    }
+}
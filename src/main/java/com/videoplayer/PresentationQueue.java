@@ -0,0 +1,257 @@
+package com.videoplayer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Short queue of finished frames between the producer and the upload, released by
+// timestamp instead of on arrival. Each frame carries the time VLC presented it; the
+// render thread asks for the frame due at the master clock, which trails VLC's by
+// however late the audio comes out (see GameAudioOutput). The newest frame at or
+// before the clock is shown, older ones are dropped as late, and while the next one
+// is still early the current frame is repeated. The producer owns a back slot, the
+// consumer a front slot; a short lock only moves slot indices, never pixels.
+public class PresentationQueue implements FrameExchange {
+    private static final int SLOTS = Math.max(3, Integer.getInteger("videoplayer.presentQueue.frames", 8));
+
+    // A frame further ahead than this means the clock is off (e.g. the audio lag just
+    // jumped), so it is shown rather than held until the queue overflows
+    private static final long MAX_EARLY_NANOS = 500_000_000L;
+    // Gaps longer than this (pauses, seeks) don't count towards jitter
+    private static final long JITTER_GAP_NANOS = 1_000_000_000L;
+    // Weight of each new sample in the running averages
+    private static final double SMOOTHING = 0.05;
+
+    private final FrameMailbox.Frame[] frames = new FrameMailbox.Frame[SLOTS];
+
+    // Guarded by this: published slots oldest first, and slots nobody holds
+    private final int[] pending = new int[SLOTS];
+    private int pendingHead;
+    private int pendingCount;
+    private final int[] free = new int[SLOTS];
+    private int freeCount;
+
+    // Producer-owned
+    private int back = 0;
+    private long nextSequence = 0;
+
+    // Consumer-owned
+    private int front = 1;
+    private long lastClockNanos;
+    private long lastPtsNanos;
+
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong presentedFrames = new AtomicLong();
+    private final AtomicLong repeatedFrames = new AtomicLong();
+    private final AtomicLong lateFrames = new AtomicLong();
+    private final AtomicLong overwrittenFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    // Written by the render thread, read by stats
+    private volatile double jitterMillis;
+    private volatile double avOffsetMillis;
+
+    private volatile Runnable publishListener;
+
+    public PresentationQueue() {
+        for (int i = 0; i < SLOTS; i++) {
+            frames[i] = new FrameMailbox.Frame();
+            if (i != back && i != front) {
+                free[freeCount++] = i;
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equals(System.getProperty("videoplayer.presentQueue"));
+    }
+
+    @Override
+    public FrameMailbox.Frame beginWrite(int width, int height, String chroma) {
+        FrameMailbox.Frame frame = frames[back];
+        frame.prepare(width, height, chroma);
+        return frame;
+    }
+
+    // Producer: queues the back slot and takes a free one, or evicts the oldest queued frame when full
+    @Override
+    public void publish(long publishedNanos) {
+        frames[back].stamp(++nextSequence, publishedNanos);
+
+        boolean evicted;
+        synchronized (this) {
+            pending[(pendingHead + pendingCount++) % SLOTS] = back;
+            evicted = freeCount == 0;
+            if (evicted) {
+                back = pending[pendingHead];
+                pendingHead = (pendingHead + 1) % SLOTS;
+                pendingCount--;
+            } else {
+                back = free[--freeCount];
+            }
+        }
+        if (evicted) {
+            overwrittenFrames.incrementAndGet();
+        }
+        publishedFrames.incrementAndGet();
+
+        Runnable listener = publishListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public void setPublishListener(Runnable listener) {
+        publishListener = listener;
+    }
+
+    @Override
+    public void drop() {
+        droppedFrames.incrementAndGet();
+    }
+
+    // Consumer: also counts a repeat when a queued frame is still early, since the
+    // render thread asks once per game frame and then keeps showing the current one
+    @Override
+    public boolean hasFrameDue(long clockNanos) {
+        synchronized (this) {
+            if (pendingCount == 0) {
+                return false;
+            }
+            if (isDue(frames[pending[pendingHead]].getPublishedNanos(), clockNanos, false)) {
+                return true;
+            }
+        }
+        repeatedFrames.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public FrameMailbox.Frame acquire(long clockNanos) {
+        int chosen = -1;
+        int late = 0;
+        synchronized (this) {
+            while (pendingCount > 0) {
+                int index = pending[pendingHead];
+                if (!isDue(frames[index].getPublishedNanos(), clockNanos, chosen >= 0)) {
+                    break;
+                }
+                pendingHead = (pendingHead + 1) % SLOTS;
+                pendingCount--;
+                if (chosen >= 0) {
+                    // A newer frame is due as well, so this one is never shown
+                    free[freeCount++] = chosen;
+                    late++;
+                }
+                chosen = index;
+            }
+            if (chosen < 0) {
+                return null;
+            }
+            free[freeCount++] = front;
+            front = chosen;
+        }
+
+        if (late > 0) {
+            lateFrames.addAndGet(late);
+        }
+        presentedFrames.incrementAndGet();
+        FrameMailbox.Frame frame = frames[front];
+        recordPresent(clockNanos, frame.getPublishedNanos());
+        return frame;
+    }
+
+    // Far-early frames only go out when nothing else is being shown this time
+    private static boolean isDue(long ptsNanos, long clockNanos, boolean haveFrame) {
+        long early = ptsNanos - clockNanos;
+        return early <= 0 || (!haveFrame && early > MAX_EARLY_NANOS);
+    }
+
+    private void recordPresent(long clockNanos, long ptsNanos) {
+        avOffsetMillis += ((clockNanos - ptsNanos) / 1_000_000.0 - avOffsetMillis) * SMOOTHING;
+
+        // How far the spacing of presents strays from the spacing of the frames themselves
+        long clockStep = clockNanos - lastClockNanos;
+        long ptsStep = ptsNanos - lastPtsNanos;
+        if (lastClockNanos != 0 && clockStep < JITTER_GAP_NANOS && ptsStep > 0 && ptsStep < JITTER_GAP_NANOS) {
+            jitterMillis += (Math.abs(clockStep - ptsStep) / 1_000_000.0 - jitterMillis) * SMOOTHING;
+        }
+        lastClockNanos = clockNanos;
+        lastPtsNanos = ptsNanos;
+    }
+
+    // Only safe once the producer has stopped; queued frames are discarded
+    @Override
+    public synchronized void release() {
+        for (FrameMailbox.Frame frame : frames) {
+            frame.release();
+        }
+        pendingHead = 0;
+        pendingCount = 0;
+        freeCount = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            if (i != back && i != front) {
+                free[freeCount++] = i;
+            }
+        }
+        lastClockNanos = 0;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        long total = 0;
+        for (FrameMailbox.Frame frame : frames) {
+            ByteBuffer buffer = frame.getBuffer();
+            if (buffer != null) {
+                total += buffer.capacity();
+            }
+        }
+        return total;
+    }
+
+    public static int getSlots() {
+        return SLOTS;
+    }
+
+    public synchronized int getQueuedFrames() {
+        return pendingCount;
+    }
+
+    @Override
+    public long getPublishedFrames() {
+        return publishedFrames.get();
+    }
+
+    @Override
+    public long getOverwrittenFrames() {
+        return overwrittenFrames.get();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getPresentedFrames() {
+        return presentedFrames.get();
+    }
+
+    // Render frames that kept the current frame because the next one was early
+    public long getRepeatedFrames() {
+        return repeatedFrames.get();
+    }
+
+    // Frames skipped because a newer one was already due
+    public long getLateFrames() {
+        return lateFrames.get();
+    }
+
+    // Average deviation of present spacing from frame spacing
+    public double getJitterMillis() {
+        return jitterMillis;
+    }
+
+    // Average of clock minus frame time at present; positive means video shows late
+    public double getAvOffsetMillis() {
+        return avOffsetMillis;
+    }
+}
@@ -0,0 +1,95 @@
+package com.videoplayer;
+
+import java.util.Objects;
+
+// Judges whether this machine keeps up with the current playback profile. For each
+// media (and again after every profile change) it skips a warm-up second, then counts
+// what VLC decoded, displayed and dropped over a measuring window of uninterrupted
+// playback. Too few decoded frames for the video's frame rate, or too many late frames
+// dropped, means the profile is too expensive.
+public class ProfileAutoTuner {
+    public enum Verdict {
+        // Still measuring, or already decided for this media
+        NONE,
+        KEEPS_UP,
+        TOO_SLOW
+    }
+
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long WINDOW_NANOS = Long.getLong("videoplayer.autoTune.seconds", 5) * 1_000_000_000L;
+
+    // More than this share of pictures lost is too slow
+    private static final double MAX_LOST_FRACTION = 0.1;
+    // Decoding below this share of the video's frame rate is too slow
+    private static final double MIN_RATE_FRACTION = 0.85;
+
+    private String mrl;
+    private boolean decided;
+    private long playingSince = -1;
+    private long windowStart = -1;
+    private int startDecoded;
+    private int startDisplayed;
+    private int startLost;
+
+    private double lastDecodeRate;
+    private double lastLostFraction;
+
+    // Starts over, e.g. after the media was restarted with a new profile
+    public void reset() {
+        decided = false;
+        playingSince = -1;
+        windowStart = -1;
+    }
+
+    // Called about once a second with VLC's cumulative counters for the current media
+    public Verdict update(long now, String currentMrl, boolean playing, int decoded, int displayed, int lost, double expectedFps) {
+        if (!Objects.equals(mrl, currentMrl)) {
+            mrl = currentMrl;
+            reset();
+        }
+        if (decided || mrl == null) {
+            return Verdict.NONE;
+        }
+        if (!playing) {
+            // Pauses, buffering and suspended video don't count
+            playingSince = -1;
+            windowStart = -1;
+            return Verdict.NONE;
+        }
+
+        if (playingSince < 0) {
+            playingSince = now;
+            return Verdict.NONE;
+        }
+        if (windowStart < 0) {
+            if (now - playingSince >= WARMUP_NANOS) {
+                windowStart = now;
+                startDecoded = decoded;
+                startDisplayed = displayed;
+                startLost = lost;
+            }
+            return Verdict.NONE;
+        }
+        if (now - windowStart < WINDOW_NANOS) {
+            return Verdict.NONE;
+        }
+
+        double seconds = (now - windowStart) / 1e9;
+        int shown = displayed - startDisplayed;
+        int dropped = lost - startLost;
+        lastDecodeRate = (decoded - startDecoded) / seconds;
+        lastLostFraction = shown + dropped > 0 ? (double) dropped / (shown + dropped) : 0;
+        decided = true;
+
+        boolean slowDecode = expectedFps > 0 && lastDecodeRate < expectedFps * MIN_RATE_FRACTION;
+        return slowDecode || lastLostFraction > MAX_LOST_FRACTION ? Verdict.TOO_SLOW : Verdict.KEEPS_UP;
+    }
+
+    public double getLastDecodeRate() {
+        return lastDecodeRate;
+    }
+
+    public double getLastLostFraction() {
+        return lastLostFraction;
+    }
+}
@@ -0,0 +1,190 @@
+package com.videoplayer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Disk-backed LRU of fixed-size media segments, one file per segment under
+// <dir>/<media key>/<index>.seg. The total size is capped; least recently used
+// segments are deleted first. Survives restarts: existing segments are picked up
+// in last-used order on startup.
+public class SegmentCache {
+    public static final int SEGMENT_SIZE = 1024 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // Segment file to its size, in access order; guarded by this
+    private final LinkedHashMap<Path, Long> segments = new LinkedHashMap<>(256, 0.75f, true);
+    // Evicted segments whose file couldn't be deleted yet (Windows refuses while a reader
+    // still has it mapped); they still take up disk, so they stay counted until a retry
+    // succeeds. Guarded by this
+    private final Map<Path, Long> undeleted = new HashMap<>();
+    private long totalBytes;
+
+    public SegmentCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        scan();
+    }
+
+    private void scan() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> found = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            files.filter(path -> path.getFileName().toString().endsWith(".seg")).forEach(found::add);
+        } catch (IOException e) {
+            VideoPlayerMod.LOGGER.warn("Could not scan media cache {}: {}", directory, e.getMessage());
+            return;
+        }
+        found.sort(Comparator.comparing(SegmentCache::lastModified));
+        synchronized (this) {
+            for (Path path : found) {
+                try {
+                    long size = Files.size(path);
+                    segments.put(path, size);
+                    totalBytes += size;
+                } catch (IOException e) {
+                    // Vanished in between
+                }
+            }
+            evict();
+        }
+        VideoPlayerMod.LOGGER.info("Media cache holds {} segments, {} MB", found.size(), totalBytes / (1024 * 1024));
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    public Path mediaDirectory(String mediaKey) {
+        return directory.resolve(mediaKey);
+    }
+
+    // Maps a cached segment for reading, or returns null if it isn't cached
+    public MappedByteBuffer map(String mediaKey, long index) {
+        Path path = segmentPath(mediaKey, index);
+        synchronized (this) {
+            if (segments.get(path) == null) {
+                return null;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Last-used order survives a restart through the modification time
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            synchronized (this) {
+                Long size = segments.remove(path);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Stores a complete segment, written to a temporary file first so readers never see half of one
+    public void put(String mediaKey, long index, byte[] data, int length) throws IOException {
+        Path path = segmentPath(mediaKey, index);
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(data, 0, length));
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        synchronized (this) {
+            Long previous = segments.put(path, (long) length);
+            // A file still waiting to be deleted has just been replaced by this one
+            Long stale = undeleted.remove(path);
+            totalBytes += length - (previous != null ? previous : 0) - (stale != null ? stale : 0);
+            evict();
+        }
+    }
+
+    // Forgets and deletes every cached segment of one media, e.g. once its upstream turned out to be a different file
+    public synchronized void removeMedia(String mediaKey) {
+        Path mediaDirectory = mediaDirectory(mediaKey);
+        Iterator<Map.Entry<Path, Long>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (!entry.getKey().getParent().equals(mediaDirectory)) {
+                continue;
+            }
+            iterator.remove();
+            delete(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Guarded by this
+    private void evict() {
+        retryDeletes();
+        Iterator<Map.Entry<Path, Long>> iterator = segments.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Path, Long> eldest = iterator.next();
+            iterator.remove();
+            delete(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    // Guarded by this: deletes a segment that is no longer served, or keeps it counted for a retry
+    private void delete(Path path, long size) {
+        try {
+            Files.deleteIfExists(path);
+            totalBytes -= size;
+        } catch (IOException e) {
+            VideoPlayerMod.LOGGER.debug("Could not delete cached segment {} yet: {}", path, e.getMessage());
+            undeleted.put(path, size);
+        }
+    }
+
+    // Guarded by this
+    private void retryDeletes() {
+        Iterator<Map.Entry<Path, Long>> iterator = undeleted.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            try {
+                Files.deleteIfExists(entry.getKey());
+                totalBytes -= entry.getValue();
+                iterator.remove();
+            } catch (IOException e) {
+                // Still mapped; try again on the next eviction
+            }
+        }
+    }
+
+    private Path segmentPath(String mediaKey, long index) {
+        return directory.resolve(mediaKey).resolve(index + ".seg");
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
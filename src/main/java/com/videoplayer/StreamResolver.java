@@ -0,0 +1,385 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns a page URL (YouTube etc.) into a direct stream URL VLC can play, using
+// yt-dlp or youtube-dl, with results kept in a StreamUrlCache. The installed tools
+// are found once in the background; extraction races every cookie strategy at once
+// and kills the losers as soon as one of them prints a URL. With a MediaCacheProxy
+// set, the URLs handed out point at the local proxy instead of the stream itself.
+public class StreamResolver {
+    public static final String DEFAULT_FORMAT = "best[ext=mp4]/best";
+
+    private static final String[] TOOL_PATHS = {
+        // Homebrew paths first (Apple Silicon and Intel), then the system PATH
+        "/opt/homebrew/bin/yt-dlp",
+        "/usr/local/bin/yt-dlp",
+        "yt-dlp",
+        // Fallback to youtube-dl
+        "/opt/homebrew/bin/youtube-dl",
+        "/usr/local/bin/youtube-dl",
+        "youtube-dl"
+    };
+
+    // Browser cookies help with age-restricted videos; "none" is the plain extraction
+    private static final String NO_COOKIES = "none";
+    private static final String[] BROWSERS = {"chrome", "firefox", "safari", "edge"};
+
+    private static final long ATTEMPT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("videoplayer.resolveTimeoutSeconds", 20));
+    // The strategy that last worked for a site gets this long to win on its own
+    private static final long HEAD_START_MILLIS = 1500;
+
+    private static final Gson GSON = new Gson();
+
+    private final StreamUrlCache cache;
+    private final Path strategyFile;
+    private final Map<String, String> strategyBySite = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CompletableFuture<List<String>> tools;
+    private volatile MediaCacheProxy mediaProxy;
+
+    public StreamResolver(Path configDir) {
+        this(configDir, null);
+    }
+
+    // A non-null tools list is used as is instead of searching for installed resolvers (a stub script in tests)
+    StreamResolver(Path configDir, List<String> tools) {
+        cache = new StreamUrlCache(configDir.resolve("stream-cache.json"));
+        strategyFile = configDir.resolve("resolver-strategies.json");
+        loadStrategies();
+        this.tools = tools != null
+            ? CompletableFuture.completedFuture(List.copyOf(tools))
+            : CompletableFuture.supplyAsync(StreamResolver::discoverTools, executor);
+        cache.setRefresher(this::extract);
+    }
+
+    public StreamUrlCache getCache() {
+        return cache;
+    }
+
+    public void setMediaProxy(MediaCacheProxy mediaProxy) {
+        this.mediaProxy = mediaProxy;
+    }
+
+    // Blocking: call from a background thread. Returns null if no tool could resolve the URL.
+    public String resolve(String pageUrl, String format) {
+        long start = System.nanoTime();
+        String cached = cache.get(pageUrl, format);
+        if (cached != null) {
+            VideoPlayerMod.LOGGER.info("Stream URL cache hit for {} ({} ms)", pageUrl, (System.nanoTime() - start) / 1_000_000);
+            return proxied(pageUrl, format, cached);
+        }
+
+        String streamUrl = extract(pageUrl, format);
+        if (streamUrl != null) {
+            cache.put(pageUrl, format, streamUrl);
+            VideoPlayerMod.LOGGER.info("Resolved {} in {} ms", pageUrl, (System.nanoTime() - start) / 1_000_000);
+        }
+        return streamUrl != null ? proxied(pageUrl, format, streamUrl) : null;
+    }
+
+    // Segments are cached per page and format, so a re-resolved URL reuses them
+    private String proxied(String pageUrl, String format, String streamUrl) {
+        MediaCacheProxy proxy = mediaProxy;
+        if (proxy == null || !MediaCacheProxy.canProxy(streamUrl)) {
+            return streamUrl;
+        }
+        try {
+            return proxy.register(pageUrl + "|" + format, streamUrl);
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Media cache proxy unavailable, playing {} directly: {}", pageUrl, e.getMessage());
+            return streamUrl;
+        }
+    }
+
+    // Called when VLC fails to open a stream: a cached URL may have been revoked early
+    public void invalidateStream(String streamUrl) {
+        MediaCacheProxy proxy = mediaProxy;
+        String upstream = proxy != null ? proxy.upstreamOf(streamUrl) : null;
+        if (cache.invalidateStream(upstream != null ? upstream : streamUrl)) {
+            VideoPlayerMod.LOGGER.info("Dropped cached stream URL after playback error");
+        }
+    }
+
+    public void close() {
+        cache.close();
+        if (mediaProxy != null) {
+            mediaProxy.close();
+        }
+        executor.shutdownNow();
+    }
+
+    // Checks every candidate on disk once; the first entry is the preferred tool
+    private static List<String> discoverTools() {
+        long start = System.nanoTime();
+        List<String> candidates = new ArrayList<>();
+        // Lets a specific (or stub) resolver be used instead of the search list
+        String configured = System.getProperty("videoplayer.ytdlp");
+        if (configured != null && !configured.isEmpty()) {
+            candidates.add(configured);
+        }
+        candidates.addAll(List.of(TOOL_PATHS));
+
+        Set<String> found = new LinkedHashSet<>();
+        for (String candidate : candidates) {
+            Path path = locate(candidate);
+            if (path != null) {
+                try {
+                    found.add(path.toRealPath().toString());
+                } catch (Exception e) {
+                    found.add(path.toString());
+                }
+            }
+        }
+
+        VideoPlayerMod.LOGGER.info("Found stream resolvers {} in {} ms", found, (System.nanoTime() - start) / 1_000_000);
+        return new ArrayList<>(found);
+    }
+
+    private static Path locate(String command) {
+        if (command.contains("/") || command.contains(File.separator)) {
+            Path path = Path.of(command);
+            return Files.isExecutable(path) ? path : null;
+        }
+
+        String pathVariable = System.getenv("PATH");
+        if (pathVariable == null) {
+            return null;
+        }
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+        for (String directory : pathVariable.split(File.pathSeparator)) {
+            if (directory.isEmpty()) {
+                continue;
+            }
+            Path path = Path.of(directory, windows ? command + ".exe" : command);
+            if (Files.isExecutable(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private String extract(String pageUrl, String format) {
+        List<String> available = tools.join();
+        for (String tool : available) {
+            String streamUrl = race(tool, pageUrl, format);
+            if (streamUrl != null) {
+                return streamUrl;
+            }
+        }
+        if (available.isEmpty()) {
+            VideoPlayerMod.LOGGER.error("Failed to extract stream URL. Make sure yt-dlp is installed.");
+            VideoPlayerMod.LOGGER.error("Install with: brew install yt-dlp");
+            VideoPlayerMod.LOGGER.error("After installing, run: which yt-dlp");
+        } else {
+            VideoPlayerMod.LOGGER.error("Failed to extract stream URL for {}", pageUrl);
+        }
+        return null;
+    }
+
+    // Runs every strategy concurrently; the first URL wins and the rest are killed
+    private String race(String tool, String pageUrl, String format) {
+        String site = siteOf(pageUrl);
+        String preferred = strategyBySite.get(site);
+        List<String> strategies = strategies(preferred);
+
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        // Completes when the preferred strategy has finished, whether it worked or not
+        CompletableFuture<Void> preferredDone = new CompletableFuture<>();
+        List<Process> processes = new CopyOnWriteArrayList<>();
+        AtomicInteger remaining = new AtomicInteger(strategies.size());
+        long start = System.nanoTime();
+
+        if (preferred == null) {
+            preferredDone.complete(null);
+        }
+        for (String strategy : strategies) {
+            boolean isPreferred = strategy.equals(preferred);
+            long delay = preferred != null && !isPreferred ? HEAD_START_MILLIS : 0;
+            executor.execute(() -> {
+                try {
+                    if (delay > 0) {
+                        try {
+                            preferredDone.get(delay, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException e) {
+                            // Preferred strategy is slow, join the race
+                        }
+                    }
+                    if (!winner.isDone()) {
+                        String streamUrl = attempt(tool, strategy, pageUrl, format, processes, winner);
+                        if (streamUrl != null && winner.complete(streamUrl)) {
+                            VideoPlayerMod.LOGGER.info("Extracted stream URL with {} ({}) in {} ms", tool, strategy,
+                                (System.nanoTime() - start) / 1_000_000);
+                            rememberStrategy(site, strategy);
+                        }
+                    }
+                } catch (Exception e) {
+                    VideoPlayerMod.LOGGER.debug("Strategy {} failed: {}", strategy, e.getMessage());
+                } finally {
+                    if (isPreferred) {
+                        preferredDone.complete(null);
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        winner.complete(null);
+                    }
+                }
+            });
+        }
+
+        try {
+            return winner.get(ATTEMPT_TIMEOUT_MILLIS + HEAD_START_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Resolving {} with {} timed out", pageUrl, tool);
+            return null;
+        } finally {
+            for (Process process : processes) {
+                kill(process);
+            }
+        }
+    }
+
+    private static List<String> strategies(String preferred) {
+        boolean mac = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("mac");
+        List<String> strategies = new ArrayList<>();
+        if (preferred != null) {
+            strategies.add(preferred);
+        }
+        for (String browser : BROWSERS) {
+            // Safari's cookie store only exists on macOS
+            if ((mac || !browser.equals("safari")) && !browser.equals(preferred)) {
+                strategies.add(browser);
+            }
+        }
+        if (!NO_COOKIES.equals(preferred)) {
+            strategies.add(NO_COOKIES);
+        }
+        return strategies;
+    }
+
+    private String attempt(String tool, String strategy, String pageUrl, String format,
+                           List<Process> processes, CompletableFuture<String> winner) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(tool);
+        if (!NO_COOKIES.equals(strategy)) {
+            command.add("--cookies-from-browser");
+            command.add(strategy);
+        }
+        command.add("-f");
+        command.add(format);
+        command.add("-g");
+        command.add(pageUrl);
+
+        Process process = new ProcessBuilder(command).start();
+        processes.add(process);
+        if (winner.isDone()) {
+            // Lost the race while starting; race() may already have killed the others
+            kill(process);
+            return null;
+        }
+        CompletableFuture<String> output = readAsync(process.getInputStream());
+        CompletableFuture<String> errors = readAsync(process.getErrorStream());
+
+        if (!process.waitFor(ATTEMPT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            kill(process);
+            VideoPlayerMod.LOGGER.debug("{} ({}) timed out", tool, strategy);
+            return null;
+        }
+
+        String streamUrl = output.join().lines().findFirst().orElse("").trim();
+        if (process.exitValue() == 0 && !streamUrl.isEmpty()) {
+            return streamUrl;
+        }
+        if (NO_COOKIES.equals(strategy) && !errors.join().isEmpty()) {
+            VideoPlayerMod.LOGGER.warn("yt-dlp error output: {}", errors.join());
+        } else {
+            VideoPlayerMod.LOGGER.debug("Failed with {} cookies: {}", strategy, errors.join());
+        }
+        return null;
+    }
+
+    private CompletableFuture<String> readAsync(InputStream stream) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (stream) {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                return "";
+            }
+        }, executor);
+    }
+
+    // yt-dlp may have spawned ffmpeg or a JS runtime, so take the whole tree down
+    private static void kill(Process process) {
+        if (process.isAlive()) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+    }
+
+    private static String siteOf(String pageUrl) {
+        try {
+            String host = URI.create(pageUrl.trim()).getHost();
+            if (host != null) {
+                host = host.toLowerCase(Locale.ROOT);
+                return host.startsWith("www.") ? host.substring(4) : host.startsWith("m.") ? host.substring(2) : host;
+            }
+        } catch (IllegalArgumentException e) {
+            // Fall through
+        }
+        return "";
+    }
+
+    private void rememberStrategy(String site, String strategy) {
+        if (!strategy.equals(strategyBySite.put(site, strategy))) {
+            saveStrategies();
+        }
+    }
+
+    private void loadStrategies() {
+        if (!Files.isRegularFile(strategyFile)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(strategyFile, StandardCharsets.UTF_8)) {
+            Map<String, String> loaded = GSON.fromJson(reader, new TypeToken<Map<String, String>>() { }.getType());
+            if (loaded != null) {
+                strategyBySite.putAll(loaded);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Ignoring unreadable {}: {}", strategyFile, e.getMessage());
+        }
+    }
+
+    private synchronized void saveStrategies() {
+        try {
+            Files.createDirectories(strategyFile.getParent());
+            try (Writer writer = Files.newBufferedWriter(strategyFile, StandardCharsets.UTF_8)) {
+                GSON.toJson(Map.copyOf(strategyBySite), writer);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Failed to save resolver strategies: {}", e.getMessage());
+        }
+    }
+}
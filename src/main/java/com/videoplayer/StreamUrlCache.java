@@ -0,0 +1,313 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Remembers direct stream URLs resolved from page URLs, so re-opening a recently
+// watched video skips yt-dlp entirely. Entries expire with the signed URL (its
+// expire= parameter) or after a TTL, are evicted least-recently-used first, and
+// survive restarts in a small JSON file. Entries that were used recently are
+// re-resolved in the background shortly before they expire.
+public class StreamUrlCache {
+    private static final int MAX_ENTRIES = Integer.getInteger("videoplayer.streamCache.size", 64);
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("videoplayer.streamCache.ttlMinutes", 60));
+
+    // Signed URLs are treated as expired this long before their stated expiry
+    private static final long EXPIRY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    // Background refresh starts this long before expiry...
+    private static final long REFRESH_LEAD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // ...but only for entries used within this window
+    private static final long REFRESH_RECENT_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    // googlevideo.com uses both ?expire=<unix seconds> and /expire/<unix seconds>/
+    private static final Pattern EXPIRE_PARAM = Pattern.compile("[?&/]expire[=/](\\d{9,11})");
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    public static class Entry {
+        String pageUrl;
+        String format;
+        String streamUrl;
+        long resolvedAt;
+        long expiresAt;
+        long lastUsed;
+
+        public String getStreamUrl() {
+            return streamUrl;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        Entry copy() {
+            Entry copy = new Entry();
+            copy.pageUrl = pageUrl;
+            copy.format = format;
+            copy.streamUrl = streamUrl;
+            copy.resolvedAt = resolvedAt;
+            copy.expiresAt = expiresAt;
+            copy.lastUsed = lastUsed;
+            return copy;
+        }
+    }
+
+    private final Path file;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, ScheduledFuture<?>> refreshes = new LinkedHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "StreamUrlCache-Refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Re-resolves (pageUrl, format) in the background; returns null on failure
+    private volatile BiFunction<String, String, String> refresher;
+
+    public StreamUrlCache(Path file) {
+        this.file = file;
+        // On close, refreshes still waiting are dropped but a save already queued goes out
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        load();
+    }
+
+    public void setRefresher(BiFunction<String, String, String> refresher) {
+        this.refresher = refresher;
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                scheduleRefresh(entry);
+            }
+        }
+    }
+
+    // Returns a still-valid stream URL, or null
+    public synchronized String get(String pageUrl, String format) {
+        Entry entry = entries.get(key(pageUrl, format));
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= entry.expiresAt) {
+            remove(key(pageUrl, format));
+            return null;
+        }
+        entry.lastUsed = now;
+        scheduleRefresh(entry);
+        saveAsync();
+        return entry.streamUrl;
+    }
+
+    public synchronized void put(String pageUrl, String format, String streamUrl) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry();
+        entry.pageUrl = pageUrl;
+        entry.format = format;
+        entry.streamUrl = streamUrl;
+        entry.resolvedAt = now;
+        entry.expiresAt = expiryOf(streamUrl, now);
+        entry.lastUsed = now;
+
+        entries.put(key(pageUrl, format), entry);
+        while (entries.size() > MAX_ENTRIES) {
+            remove(entries.keySet().iterator().next());
+        }
+        scheduleRefresh(entry);
+        saveAsync();
+    }
+
+    // Drops every entry that resolved to this stream URL (e.g. VLC got a 403 for it)
+    public synchronized boolean invalidateStream(String streamUrl) {
+        boolean removed = false;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> mapEntry = iterator.next();
+            if (mapEntry.getValue().streamUrl.equals(streamUrl)) {
+                cancelRefresh(mapEntry.getKey());
+                iterator.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            saveAsync();
+        }
+        return removed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                // A refresh is still waiting on yt-dlp
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static long expiryOf(String streamUrl, long now) {
+        Matcher matcher = EXPIRE_PARAM.matcher(streamUrl);
+        if (matcher.find()) {
+            long expires = TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1))) - EXPIRY_MARGIN_MILLIS;
+            // Ignore nonsense values rather than caching forever or not at all
+            if (expires > now && expires - now < TimeUnit.DAYS.toMillis(7)) {
+                return expires;
+            }
+        }
+        return now + TTL_MILLIS;
+    }
+
+    private static String key(String pageUrl, String format) {
+        return normalize(pageUrl) + "|" + format;
+    }
+
+    // Same video pasted with or without a trailing slash/whitespace should hit
+    private static String normalize(String pageUrl) {
+        String trimmed = pageUrl.trim();
+        try {
+            URI uri = URI.create(trimmed);
+            if (uri.getHost() != null) {
+                String path = uri.getRawPath() == null || uri.getRawPath().equals("/") ? "" : uri.getRawPath();
+                return uri.getScheme() + "://" + uri.getHost().toLowerCase() + path
+                    + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a URI, use it as typed
+        }
+        return trimmed;
+    }
+
+    private void remove(String key) {
+        cancelRefresh(key);
+        entries.remove(key);
+    }
+
+    private void scheduleRefresh(Entry entry) {
+        if (refresher == null) {
+            return;
+        }
+        String key = key(entry.pageUrl, entry.format);
+        cancelRefresh(key);
+
+        long now = System.currentTimeMillis();
+        if (now - entry.lastUsed > REFRESH_RECENT_MILLIS) {
+            return;
+        }
+        long delay = Math.max(0, entry.expiresAt - REFRESH_LEAD_MILLIS - now);
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        refreshes.put(key, scheduler.schedule(() -> refresh(entry.pageUrl, entry.format), delay, TimeUnit.MILLISECONDS));
+    }
+
+    private void cancelRefresh(String key) {
+        ScheduledFuture<?> pending = refreshes.remove(key);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    private void refresh(String pageUrl, String format) {
+        BiFunction<String, String, String> resolve = refresher;
+        if (resolve == null) {
+            return;
+        }
+        String streamUrl = resolve.apply(pageUrl, format);
+        synchronized (this) {
+            Entry current = entries.get(key(pageUrl, format));
+            if (current == null) {
+                return;
+            }
+            if (streamUrl != null) {
+                // Keep the entry's recency; only the URL and expiry change
+                current.streamUrl = streamUrl;
+                current.resolvedAt = System.currentTimeMillis();
+                current.expiresAt = expiryOf(streamUrl, current.resolvedAt);
+                VideoPlayerMod.LOGGER.debug("Refreshed stream URL for {}", pageUrl);
+                scheduleRefresh(current);
+                saveAsync();
+            } else {
+                refreshes.remove(key(pageUrl, format));
+            }
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<Entry> loaded = GSON.fromJson(reader, new TypeToken<List<Entry>>() { }.getType());
+            if (loaded == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                // Stored oldest first, so insertion order restores the LRU order
+                for (Entry entry : loaded) {
+                    if (entry.pageUrl != null && entry.streamUrl != null && entry.expiresAt > now) {
+                        entries.put(key(entry.pageUrl, entry.format), entry);
+                    }
+                }
+            }
+            VideoPlayerMod.LOGGER.info("Loaded {} cached stream URLs", entries.size());
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Ignoring unreadable stream URL cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void saveAsync() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        List<Entry> snapshot = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            snapshot.add(entry.copy());
+        }
+        scheduler.execute(() -> save(snapshot));
+    }
+
+    private void save(List<Entry> snapshot) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(snapshot, writer);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            VideoPlayerMod.LOGGER.warn("Failed to save stream URL cache: {}", e.getMessage());
+        }
+    }
+}
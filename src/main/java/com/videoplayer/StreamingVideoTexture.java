@@ -0,0 +1,163 @@
+package com.videoplayer;
+
+import com.mojang.blaze3d.opengl.GlStateManager;
+import com.mojang.blaze3d.opengl.GlTexture;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.textures.AddressMode;
+import com.mojang.blaze3d.textures.FilterMode;
+import com.mojang.blaze3d.textures.GpuTexture;
+import com.mojang.blaze3d.textures.TextureFormat;
+import net.minecraft.client.texture.AbstractTexture;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+// Video texture that streams frames through pixel buffer objects into two GL textures.
+// Each frame is converted straight into an orphaned, mapped PBO and copied into the
+// back texture by the driver asynchronously; the textures swap at the start of the next
+// render frame, so drawing frame N overlaps with the upload of frame N+1 and the render
+// thread never waits on glTexSubImage2D reading client memory.
+public class StreamingVideoTexture extends AbstractTexture {
+    private static final int MAP_ACCESS = GL30.GL_MAP_WRITE_BIT
+        | GL30.GL_MAP_INVALIDATE_BUFFER_BIT
+        | GL30.GL_MAP_UNSYNCHRONIZED_BIT;
+
+    private final GpuTexture[] textures = new GpuTexture[2];
+    private final int[] pixelBuffers = new int[2];
+    private final int width;
+    private final int height;
+
+    // Texture the next upload goes to, and the PBO it goes through
+    private int back = 1;
+    private int nextPixelBuffer = 0;
+    private boolean swapPending = false;
+
+    public StreamingVideoTexture(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            textures[i] = RenderSystem.getDevice().createTexture(() -> "video_frame_" + index, TextureFormat.RGBA8, width, height, 1);
+            pixelBuffers[i] = GL15.glGenBuffers();
+        }
+        // glTexture stays unset until the first upload has been swapped in, so nothing
+        // draws a texture whose contents were never defined
+    }
+
+    // PBO streaming needs GL 3.0 map-buffer-range; it only uses core calls Mesa's llvmpipe supports
+    public static boolean isSupported() {
+        if ("false".equals(System.getProperty("videoplayer.streamingTexture"))) {
+            return false;
+        }
+        GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL30 || capabilities.GL_ARB_map_buffer_range;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // False until a frame has been uploaded and swapped in
+    public boolean hasFrame() {
+        return glTexture != null;
+    }
+
+    // Sampler state applies to both textures, not just the one showing right now
+    @Override
+    public void setFilter(boolean bilinear, boolean mipmap) {
+        for (GpuTexture texture : textures) {
+            if (texture != null) {
+                texture.setTextureFilter(bilinear ? FilterMode.LINEAR : FilterMode.NEAREST, mipmap);
+            }
+        }
+    }
+
+    @Override
+    public void setClamp(boolean clamp) {
+        for (GpuTexture texture : textures) {
+            if (texture != null) {
+                texture.setAddressMode(clamp ? AddressMode.CLAMP_TO_EDGE : AddressMode.REPEAT);
+            }
+        }
+    }
+
+    // Called at the start of a render frame: show what was uploaded during the last one
+    public void swapIfPending() {
+        if (swapPending) {
+            glTexture = textures[back];
+            back ^= 1;
+            swapPending = false;
+        }
+    }
+
+    // Two textures plus two PBOs of one frame each
+    public long getAllocatedBytes() {
+        return (long) width * height * 4 * 4;
+    }
+
+    // Returns the time spent converting into the mapped PBO
+    public long upload(FrameMailbox.Frame frame) {
+        long bytes = (long) frame.getWidth() * frame.getHeight() * 4;
+        int pixelBuffer = pixelBuffers[nextPixelBuffer];
+        nextPixelBuffer ^= 1;
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, pixelBuffer);
+        try {
+            // Orphan the previous storage so mapping never waits for the GPU to finish reading it
+            GL15.glBufferData(GL21.GL_PIXEL_UNPACK_BUFFER, bytes, GL15.GL_STREAM_DRAW);
+            ByteBuffer mapped = GL30.glMapBufferRange(GL21.GL_PIXEL_UNPACK_BUFFER, 0, bytes, MAP_ACCESS);
+            if (mapped == null) {
+                throw new IllegalStateException("glMapBufferRange failed: 0x" + Integer.toHexString(GL11.glGetError()));
+            }
+
+            long conversionStart = System.nanoTime();
+            FrameConverter.convert(frame.getBuffer(), MemoryUtil.memAddress(mapped), frame.getWidth(), frame.getHeight(),
+                FrameConverter.needsSwizzle(frame.getChroma()));
+            long conversionNanos = System.nanoTime() - conversionStart;
+            GL15.glUnmapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER);
+
+            // Minecraft leaves its own unpack state behind after uploads
+            GlStateManager._pixelStore(GL11.GL_UNPACK_ROW_LENGTH, 0);
+            GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_ROWS, 0);
+            GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+            GlStateManager._pixelStore(GL11.GL_UNPACK_ALIGNMENT, 4);
+
+            // Source offset 0 in the bound PBO: the copy is queued, not performed now
+            GlStateManager._bindTexture(((GlTexture) textures[back]).glId());
+            GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, frame.getWidth(), frame.getHeight(),
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0L);
+            swapPending = true;
+            return conversionNanos;
+        } finally {
+            GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Both textures are ours; don't let the base class close one of them twice
+        glTexture = null;
+        for (int i = 0; i < 2; i++) {
+            if (textures[i] != null) {
+                textures[i].close();
+                textures[i] = null;
+            }
+            if (pixelBuffers[i] != 0) {
+                GL15.glDeleteBuffers(pixelBuffers[i]);
+                pixelBuffers[i] = 0;
+            }
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.videoplayer;
+
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.StringVisitable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Draws a player's current subtitle cues along the bottom of one view. Each cue is
+// wrapped and measured once when it appears and the result is reused while it stays
+// on screen; only a new cue or a different view width lays text out again. One
+// overlay per view, since views wrap at their own width.
+public class SubtitleOverlay {
+    private static final int LINE_SPACING = 1;
+    private static final int PADDING = 2;
+    // Leaves room for the seek bar
+    public static final int BOTTOM_MARGIN = 14;
+
+    // Wrapped lines of one cue, with their widths
+    private static class Layout {
+        final OrderedText[] lines;
+        final int[] widths;
+
+        Layout(OrderedText[] lines, int[] widths) {
+            this.lines = lines;
+            this.widths = widths;
+        }
+    }
+
+    // Layouts of the cues on screen, replaced when the cues change; render thread only
+    private List<SubtitleTrack.Cue> shown = List.of();
+    private Map<SubtitleTrack.Cue, Layout> layouts = new IdentityHashMap<>();
+    private int layoutWidth = -1;
+
+    public void draw(DrawContext context, TextRenderer textRenderer, VideoPlayer videoPlayer, int x, int y, int width, int height) {
+        draw(context, textRenderer, videoPlayer, x, y, width, height, BOTTOM_MARGIN);
+    }
+
+    // bottomMargin keeps the cues clear of whatever controls cover the bottom of the view
+    public void draw(DrawContext context, TextRenderer textRenderer, VideoPlayer videoPlayer, int x, int y, int width, int height, int bottomMargin) {
+        SubtitleTrack track = videoPlayer.getSubtitles();
+        if (track == null) {
+            return;
+        }
+        List<SubtitleTrack.Cue> cues = track.cuesAt(videoPlayer.getTimeMillis());
+        if (cues.isEmpty()) {
+            return;
+        }
+
+        int maxWidth = width - 4 * PADDING;
+        if (maxWidth != layoutWidth) {
+            layouts.clear();
+            layoutWidth = maxWidth;
+        }
+        if (cues != shown) {
+            // Keep the layouts of cues that are still showing, drop the rest
+            Map<SubtitleTrack.Cue, Layout> kept = new IdentityHashMap<>();
+            for (SubtitleTrack.Cue cue : cues) {
+                Layout layout = layouts.get(cue);
+                kept.put(cue, layout != null ? layout : layout(textRenderer, cue, maxWidth));
+            }
+            layouts = kept;
+            shown = cues;
+        } else if (layouts.isEmpty()) {
+            for (SubtitleTrack.Cue cue : cues) {
+                layouts.put(cue, layout(textRenderer, cue, maxWidth));
+            }
+        }
+
+        // Later cues stack above earlier ones
+        int lineHeight = textRenderer.fontHeight + LINE_SPACING;
+        int bottom = y + height - bottomMargin;
+        for (SubtitleTrack.Cue cue : cues) {
+            Layout layout = layouts.get(cue);
+            for (int i = layout.lines.length - 1; i >= 0; i--) {
+                int lineY = bottom - lineHeight;
+                if (lineY < y) {
+                    return;
+                }
+                int lineX = x + (width - layout.widths[i]) / 2;
+                context.fill(lineX - PADDING, lineY - 1, lineX + layout.widths[i] + PADDING, lineY + lineHeight - 1, 0x99000000);
+                context.drawText(textRenderer, layout.lines[i], lineX, lineY, 0xFFFFFFFF, false);
+                bottom = lineY;
+            }
+        }
+    }
+
+    private static Layout layout(TextRenderer textRenderer, SubtitleTrack.Cue cue, int maxWidth) {
+        List<OrderedText> lines = new ArrayList<>();
+        for (String line : cue.getText().split("\n")) {
+            lines.addAll(textRenderer.wrapLines(StringVisitable.plain(line), Math.max(1, maxWidth)));
+        }
+        int[] widths = new int[lines.size()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = textRenderer.getWidth(lines.get(i));
+        }
+        return new Layout(lines.toArray(new OrderedText[0]), widths);
+    }
+}
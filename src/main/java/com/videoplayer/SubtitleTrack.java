@@ -0,0 +1,192 @@
+package com.videoplayer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Subtitle cues from an SRT or WebVTT file, parsed once into arrays sorted by start
+// time. Looking up what shows at a time is a binary search plus a walk back over the
+// cues that can still overlap it; the answer is kept with the time range it holds
+// for, so during playback most lookups are one range check.
+public class SubtitleTrack {
+    public static class Cue {
+        final long startMillis;
+        final long endMillis;
+        // Tags stripped, lines separated by \n
+        final String text;
+
+        Cue(long startMillis, long endMillis, String text) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    // SRT uses a comma before the milliseconds, WebVTT a dot and may leave out the hours
+    private static final Pattern TIMING = Pattern.compile(
+        "((?:\\d+:)?\\d{1,2}:\\d{2}[,.]\\d{1,3})\\s*-->\\s*((?:\\d+:)?\\d{1,2}:\\d{2}[,.]\\d{1,3})");
+    // <i>, </b>, <c.yellow>, <00:01:02.000> karaoke timestamps and ASS {\an8} overrides
+    private static final Pattern MARKUP = Pattern.compile("<[^>]*>|\\{\\\\[^}]*}");
+
+    private final Path source;
+    private final Cue[] cues;
+    // maxEnd[i] is the latest end time among cues 0..i, so the walk back can stop early
+    private final long[] maxEnd;
+
+    // Last lookup and the time range it is valid for; render thread only
+    private List<Cue> active = List.of();
+    private long activeFrom = 0;
+    private long activeUntil = -1;
+
+    private SubtitleTrack(Path source, List<Cue> parsed) {
+        this.source = source;
+        parsed.sort(Comparator.comparingLong(cue -> cue.startMillis));
+        cues = parsed.toArray(new Cue[0]);
+        maxEnd = new long[cues.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < cues.length; i++) {
+            max = Math.max(max, cues[i].endMillis);
+            maxEnd[i] = max;
+        }
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public int size() {
+        return cues.length;
+    }
+
+    // Cues showing at this time, in start order; the same list until the answer changes
+    public List<Cue> cuesAt(long timeMillis) {
+        if (timeMillis >= activeFrom && timeMillis < activeUntil) {
+            return active;
+        }
+
+        // Last cue starting at or before the time
+        int low = 0;
+        int high = cues.length - 1;
+        int last = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (cues[mid].startMillis <= timeMillis) {
+                last = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // Nothing changes before the next cue starts or a showing cue ends, and nothing
+        // changed since the last cue started or a cue before it ended
+        long until = last + 1 < cues.length ? cues[last + 1].startMillis : Long.MAX_VALUE;
+        long from = last >= 0 ? cues[last].startMillis : Long.MIN_VALUE;
+        List<Cue> found = new ArrayList<>(2);
+        int i = last;
+        while (i >= 0 && maxEnd[i] > timeMillis) {
+            Cue cue = cues[i];
+            if (cue.endMillis > timeMillis) {
+                found.add(cue);
+                until = Math.min(until, cue.endMillis);
+            } else {
+                from = Math.max(from, cue.endMillis);
+            }
+            i--;
+        }
+        if (i >= 0) {
+            from = Math.max(from, maxEnd[i]);
+        }
+
+        found.sort(Comparator.comparingLong(cue -> cue.startMillis));
+        active = found.isEmpty() ? List.of() : List.copyOf(found);
+        activeFrom = from;
+        activeUntil = until;
+        return active;
+    }
+
+    public static boolean isSubtitleFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".srt") || name.endsWith(".vtt");
+    }
+
+    // Reads line by line, so a file with thousands of cues never sits in memory as one string
+    public static SubtitleTrack load(Path path) throws IOException {
+        List<Cue> parsed = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            long start = -1;
+            long end = -1;
+            StringBuilder text = new StringBuilder();
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                if (first) {
+                    // Byte order mark
+                    line = line.startsWith("\uFEFF") ? line.substring(1) : line;
+                    first = false;
+                }
+                if (line.isBlank()) {
+                    addCue(parsed, start, end, text);
+                    start = -1;
+                    text.setLength(0);
+                    continue;
+                }
+                Matcher timing = TIMING.matcher(line);
+                if (timing.find()) {
+                    // A timing line without a blank line before it still starts a new cue
+                    addCue(parsed, start, end, text);
+                    text.setLength(0);
+                    start = parseTime(timing.group(1));
+                    end = parseTime(timing.group(2));
+                } else if (start >= 0) {
+                    String cleaned = clean(line);
+                    if (!cleaned.isEmpty()) {
+                        if (!text.isEmpty()) {
+                            text.append('\n');
+                        }
+                        text.append(cleaned);
+                    }
+                }
+                // Anything else is a cue number, a WebVTT header, NOTE, STYLE or REGION block
+            }
+            addCue(parsed, start, end, text);
+        }
+        return new SubtitleTrack(path, parsed);
+    }
+
+    private static void addCue(List<Cue> parsed, long start, long end, StringBuilder text) {
+        if (start >= 0 && end > start && !text.isEmpty()) {
+            parsed.add(new Cue(start, end, text.toString()));
+        }
+    }
+
+    // [hh:]mm:ss[,.]mmm
+    static long parseTime(String value) {
+        String[] parts = value.replace(',', '.').split(":");
+        long hours = parts.length == 3 ? Long.parseLong(parts[0]) : 0;
+        long minutes = Long.parseLong(parts[parts.length - 2]);
+        String[] seconds = parts[parts.length - 1].split("\\.");
+        String fraction = (seconds[1] + "00").substring(0, 3);
+        return ((hours * 60 + minutes) * 60 + Long.parseLong(seconds[0])) * 1000 + Long.parseLong(fraction);
+    }
+
+    private static String clean(String line) {
+        return MARKUP.matcher(line).replaceAll("")
+            .replace("&lt;", "<")
+            .replace("&gt;", ">")
+            .replace("&nbsp;", " ")
+            .replace("&amp;", "&")
+            .strip();
+    }
+}
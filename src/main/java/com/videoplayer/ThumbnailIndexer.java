@@ -0,0 +1,332 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.videoplayer.mixin.NativeImageAccessor;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.util.Identifier;
+import org.lwjgl.system.MemoryUtil;
+import uk.co.caprica.vlcj.factory.MediaPlayerFactory;
+import uk.co.caprica.vlcj.player.base.MediaPlayer;
+import uk.co.caprica.vlcj.player.embedded.EmbeddedMediaPlayer;
+import uk.co.caprica.vlcj.player.embedded.videosurface.CallbackVideoSurface;
+import uk.co.caprica.vlcj.player.embedded.videosurface.VideoSurfaceAdapters;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormat;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormatCallback;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.RenderCallback;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.format.RV32BufferFormat;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Builds seek-bar preview sheets for local video files in the background. A second,
+// headless media player from the shared factory plays the file without audio at
+// thumbnail size and is seeked through it at fixed intervals; each first frame after
+// a seek is copied into a sprite sheet. Sheets are saved as PNG plus a JSON index,
+// keyed by a hash of the file's size, modification time and first and last 64 KB, so
+// opening the same file again just loads the PNG. Streams are not indexed, since
+// seeking through one would download most of it.
+public class ThumbnailIndexer {
+    private static final int THUMB_WIDTH = 128;
+    private static final int THUMB_HEIGHT = 72;
+    private static final int COLUMNS = 10;
+    private static final int MAX_THUMBNAILS = 150;
+    private static final long INTERVAL_MILLIS = Long.getLong("videoplayer.thumbnails.intervalSeconds", 10) * 1000;
+    private static final long FRAME_TIMEOUT_MILLIS = 2000;
+    private static final int HASH_SAMPLE_BYTES = 64 * 1024;
+    // Sheets kept as textures at once
+    private static final int MAX_LOADED = 4;
+
+    private static final Gson GSON = new Gson();
+
+    private final CompletableFuture<MediaPlayerFactory> factory;
+    private final Path directory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Thumbnail-Indexer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Per mrl: the sheet once loaded, or null while it is being built; render thread only
+    private final Map<String, CompletableFuture<ThumbnailSheet>> sheets = new LinkedHashMap<>(8, 0.75f, true);
+
+    // Headless player, created on first use; indexer thread only
+    private EmbeddedMediaPlayer player;
+    private final ByteBuffer frame = ByteBuffer.allocateDirect(THUMB_WIDTH * THUMB_HEIGHT * 4);
+    private volatile CountDownLatch frameLatch;
+    private volatile int skipFrames;
+
+    public ThumbnailIndexer(CompletableFuture<MediaPlayerFactory> factory, Path directory) {
+        this.factory = factory;
+        this.directory = directory;
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equals(System.getProperty("videoplayer.thumbnails"));
+    }
+
+    // Render thread: the sheet for this media if it is ready, starting the indexer on first ask
+    public ThumbnailSheet getSheet(String mrl) {
+        if (mrl == null) {
+            return null;
+        }
+        CompletableFuture<ThumbnailSheet> sheet = sheets.get(mrl);
+        if (sheet == null) {
+            Path file = VideoPlayer.localFile(mrl);
+            if (file == null) {
+                return null;
+            }
+            sheet = new CompletableFuture<>();
+            sheets.put(mrl, sheet);
+            CompletableFuture<ThumbnailSheet> result = sheet;
+            executor.execute(() -> load(file, result));
+            evict();
+        }
+        return sheet.getNow(null);
+    }
+
+    private void evict() {
+        while (sheets.size() > MAX_LOADED) {
+            Map.Entry<String, CompletableFuture<ThumbnailSheet>> eldest = sheets.entrySet().iterator().next();
+            sheets.remove(eldest.getKey());
+            eldest.getValue().thenAccept(sheet -> MinecraftClient.getInstance().execute(() ->
+                MinecraftClient.getInstance().getTextureManager().destroyTexture(sheet.getTexture())));
+        }
+    }
+
+    // Indexer thread
+    private void load(Path file, CompletableFuture<ThumbnailSheet> result) {
+        long start = System.nanoTime();
+        try {
+            String key = key(file);
+            Path png = directory.resolve(key + ".png");
+            Path json = directory.resolve(key + ".json");
+
+            ThumbnailSheet.Index index = null;
+            NativeImage image = null;
+            if (Files.isRegularFile(png) && Files.isRegularFile(json)) {
+                try (Reader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8);
+                     InputStream in = Files.newInputStream(png)) {
+                    index = GSON.fromJson(reader, ThumbnailSheet.Index.class);
+                    image = NativeImage.read(in);
+                    if (image.getHeight() != ThumbnailSheet.rows(index.times.length, index.columns) * index.thumbHeight) {
+                        // Written before timed-out cells were left out; the UVs wouldn't match
+                        throw new IllegalStateException("sheet height doesn't match its index");
+                    }
+                } catch (Exception e) {
+                    VideoPlayerMod.LOGGER.warn("Rebuilding unreadable thumbnails for {}: {}", file, e.getMessage());
+                    index = null;
+                }
+            }
+            if (index == null || image == null) {
+                if (image != null) {
+                    image.close();
+                }
+                index = new ThumbnailSheet.Index();
+                index.key = key;
+                image = build(file, index);
+                if (image == null) {
+                    result.complete(null);
+                    return;
+                }
+                Files.createDirectories(directory);
+                image.writeTo(png);
+                try (Writer writer = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+                    GSON.toJson(index, writer);
+                }
+                VideoPlayerMod.LOGGER.info("Indexed {} thumbnails of {} in {} ms", index.times.length, file.getFileName(),
+                    (System.nanoTime() - start) / 1_000_000);
+            } else {
+                VideoPlayerMod.LOGGER.info("Loaded {} thumbnails of {} from disk in {} ms", index.times.length, file.getFileName(),
+                    (System.nanoTime() - start) / 1_000_000);
+            }
+
+            // One upload, then every hover is a lookup into this texture
+            NativeImage sheetImage = image;
+            ThumbnailSheet.Index sheetIndex = index;
+            MinecraftClient.getInstance().execute(() -> {
+                Identifier id = Identifier.of(VideoPlayerMod.MOD_ID, "thumbnails/" + key);
+                MinecraftClient.getInstance().getTextureManager().registerTexture(id,
+                    new NativeImageBackedTexture(() -> "thumbnails " + key, sheetImage));
+                result.complete(new ThumbnailSheet(id, sheetIndex));
+            });
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Thumbnail indexing failed for {}", file, e);
+            result.complete(null);
+        }
+    }
+
+    private NativeImage build(Path file, ThumbnailSheet.Index index) throws Exception {
+        EmbeddedMediaPlayer player = player();
+        if (player == null) {
+            return null;
+        }
+
+        // Low-cost decode: no audio, one decoder thread, no hardware surfaces to read back
+        player.media().play(file.toString(), ":no-audio", ":avcodec-threads=1", ":avcodec-hw=none", ":no-sub-autodetect-file");
+        long duration = 0;
+        for (int i = 0; i < 50 && duration <= 0; i++) {
+            Thread.sleep(100);
+            duration = player.status().length();
+        }
+        if (duration <= 0) {
+            player.controls().stop();
+            VideoPlayerMod.LOGGER.info("No duration for {}, not indexing thumbnails", file.getFileName());
+            return null;
+        }
+
+        long interval = Math.max(INTERVAL_MILLIS, duration / MAX_THUMBNAILS);
+        int count = (int) Math.max(1, Math.min(MAX_THUMBNAILS, duration / interval));
+        long[] times = new long[count];
+        NativeImage image = new NativeImage(NativeImage.Format.RGBA, COLUMNS * THUMB_WIDTH,
+            ThumbnailSheet.rows(count, COLUMNS) * THUMB_HEIGHT, true);
+        long pixels = ((NativeImageAccessor) (Object) image).getPointer();
+        long framePixels = MemoryUtil.memAddress(frame);
+        // Cells actually captured; a seek that times out leaves no cell behind, so the
+        // preview shows the nearest earlier thumbnail instead of an empty one
+        int filled = 0;
+
+        try {
+            for (int i = 0; i < count; i++) {
+                // A little into each interval, past fades from black at the very start
+                long target = i * interval + Math.min(1000, interval / 2);
+                CountDownLatch latch = new CountDownLatch(1);
+                // Pictures already queued before the seek may still be shown once
+                skipFrames = 1;
+                frameLatch = latch;
+                player.controls().setTime(target);
+                if (!latch.await(FRAME_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                times[filled] = Math.max(filled > 0 ? times[filled - 1] : 0, player.status().time());
+
+                int x = (filled % COLUMNS) * THUMB_WIDTH;
+                int y = (filled / COLUMNS) * THUMB_HEIGHT;
+                filled++;
+                for (int row = 0; row < THUMB_HEIGHT; row++) {
+                    long source = framePixels + (long) row * THUMB_WIDTH * 4;
+                    long destination = pixels + ((long) (y + row) * COLUMNS * THUMB_WIDTH + x) * 4;
+                    FrameConverter.swizzleBgraToRgba(source, destination, THUMB_WIDTH * 4L);
+                }
+            }
+        } finally {
+            frameLatch = null;
+            player.controls().stop();
+        }
+
+        if (filled == 0) {
+            image.close();
+            VideoPlayerMod.LOGGER.info("No thumbnails could be captured from {}", file.getFileName());
+            return null;
+        }
+        if (filled < count) {
+            // Cells are packed from the top, so the rows in use are a prefix of the image;
+            // the sheet must be exactly that tall for its UVs to line up
+            int rows = ThumbnailSheet.rows(filled, COLUMNS) * THUMB_HEIGHT;
+            NativeImage packed = new NativeImage(NativeImage.Format.RGBA, COLUMNS * THUMB_WIDTH, rows, true);
+            MemoryUtil.memCopy(pixels, ((NativeImageAccessor) (Object) packed).getPointer(),
+                (long) rows * COLUMNS * THUMB_WIDTH * 4);
+            image.close();
+            image = packed;
+        }
+        index.durationMillis = duration;
+        index.thumbWidth = THUMB_WIDTH;
+        index.thumbHeight = THUMB_HEIGHT;
+        index.columns = COLUMNS;
+        index.times = Arrays.copyOf(times, filled);
+        return image;
+    }
+
+    private EmbeddedMediaPlayer player() throws Exception {
+        if (player != null) {
+            return player;
+        }
+        MediaPlayerFactory mediaPlayerFactory = factory.get();
+        EmbeddedMediaPlayer mediaPlayer = mediaPlayerFactory.mediaPlayers().newEmbeddedMediaPlayer();
+
+        BufferFormatCallback format = new BufferFormatCallback() {
+            @Override
+            public BufferFormat getBufferFormat(int sourceWidth, int sourceHeight) {
+                // VLC scales every picture down to one sprite cell
+                return new RV32BufferFormat(THUMB_WIDTH, THUMB_HEIGHT);
+            }
+
+            @Override
+            public void allocatedBuffers(ByteBuffer[] buffers) {
+            }
+        };
+        RenderCallback render = (MediaPlayer mp, ByteBuffer[] buffers, BufferFormat bufferFormat) -> {
+            CountDownLatch latch = frameLatch;
+            if (latch == null || buffers.length == 0) {
+                return;
+            }
+            if (skipFrames > 0) {
+                skipFrames--;
+                return;
+            }
+            ByteBuffer source = buffers[0].duplicate();
+            source.clear().limit(Math.min(source.capacity(), frame.capacity()));
+            frame.clear();
+            frame.put(source);
+            frameLatch = null;
+            latch.countDown();
+        };
+        mediaPlayer.videoSurface().set(new CallbackVideoSurface(format, render, true, VideoSurfaceAdapters.getVideoSurfaceAdapter()));
+        player = mediaPlayer;
+        return player;
+    }
+
+    // Size, modification time and the first and last 64 KB: cheap, and changes whenever the file does
+    static String key(Path file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        long size = Files.size(file);
+        digest.update((size + ":" + Files.getLastModifiedTime(file).toMillis()).getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_SAMPLE_BYTES);
+            channel.read(buffer, 0);
+            digest.update(buffer.flip());
+            buffer.clear();
+            channel.read(buffer, Math.max(0, size - HASH_SAMPLE_BYTES));
+            digest.update(buffer.flip());
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 12);
+    }
+
+    // Waits for the headless player to be released, so the shared factory can go after it
+    public void close() {
+        // Queued sheets are dropped; the one being built stops at its next seek timeout at worst
+        executor.execute(() -> {
+            if (player != null) {
+                player.release();
+                player = null;
+            }
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(FRAME_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS)) {
+                VideoPlayerMod.LOGGER.warn("Thumbnail indexer did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.videoplayer;
+
+import net.minecraft.util.Identifier;
+
+import java.util.Arrays;
+
+// A finished thumbnail sprite sheet: one texture with the thumbnails in rows of
+// `columns`, plus the media time each cell actually shows. Looking up a preview is a
+// binary search over the times and a little arithmetic for the cell's UV offset.
+public class ThumbnailSheet {
+    // Persisted as <key>.json next to <key>.png
+    static class Index {
+        String key;
+        long durationMillis;
+        int thumbWidth;
+        int thumbHeight;
+        int columns;
+        long[] times;
+    }
+
+    private final Identifier texture;
+    private final Index index;
+
+    ThumbnailSheet(Identifier texture, Index index) {
+        this.texture = texture;
+        this.index = index;
+    }
+
+    public Identifier getTexture() {
+        return texture;
+    }
+
+    public long getDurationMillis() {
+        return index.durationMillis;
+    }
+
+    public int getThumbWidth() {
+        return index.thumbWidth;
+    }
+
+    public int getThumbHeight() {
+        return index.thumbHeight;
+    }
+
+    public int getSheetWidth() {
+        return index.columns * index.thumbWidth;
+    }
+
+    public int getSheetHeight() {
+        return rows(index.times.length, index.columns) * index.thumbHeight;
+    }
+
+    // Cell showing the latest thumbnail at or before the given time
+    public int cellAt(long timeMillis) {
+        int found = Arrays.binarySearch(index.times, timeMillis);
+        int cell = found >= 0 ? found : Math.max(0, -found - 2);
+        return Math.min(cell, index.times.length - 1);
+    }
+
+    public int cellU(int cell) {
+        return (cell % index.columns) * index.thumbWidth;
+    }
+
+    public int cellV(int cell) {
+        return (cell / index.columns) * index.thumbHeight;
+    }
+
+    static int rows(int count, int columns) {
+        return (count + columns - 1) / columns;
+    }
+}
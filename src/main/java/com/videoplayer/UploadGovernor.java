@@ -0,0 +1,197 @@
+package com.videoplayer;
+
+import java.util.Locale;
+
+// Decides how often decoded frames are converted and uploaded, so the game's own
+// frame pacing comes first. It measures the time between render frames and what
+// each upload costs, and turns that into a minimum interval between uploads.
+public class UploadGovernor {
+    public enum Mode {
+        // Upload every decoded frame
+        NATIVE,
+        // Upload every other decoded frame
+        HALF_RATE,
+        // Never upload more often than the fixed cap
+        FIXED_CAP,
+        // Only upload when the frame has room for it
+        HEADROOM,
+        // Back off while uploads push the game over its budget, recover when they don't
+        ADAPTIVE
+    }
+
+    private static final double SMOOTHING = 0.1;
+
+    // Even with no headroom the video should keep moving a little
+    private static final long MAX_INTERVAL_NANOS = 250_000_000L;
+    private static final long ADAPTIVE_START_NANOS = 1_000_000_000L / 120;
+
+    private volatile Mode mode = parseMode(System.getProperty("videoplayer.uploadMode"));
+    private volatile int fixedCapFps = Integer.getInteger("videoplayer.uploadFpsCap", 30);
+    private volatile long frameBudgetNanos = 1_000_000_000L / 60;
+
+    // Render thread only
+    private long lastFrameStart;
+    private long lastUploadTime;
+    private long previousUploadTime;
+    private long uploadNanosThisFrame;
+    private long adaptiveIntervalNanos = ADAPTIVE_START_NANOS;
+    private long lastPublishedFrames;
+
+    // Smoothed measurements, in nanoseconds
+    private volatile double gameFrameNanos;
+    private volatile double uploadNanos;
+    private volatile double videoFrameNanos;
+    private volatile long minIntervalNanos;
+
+    private volatile long uploads;
+    private volatile long deferrals;
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+        adaptiveIntervalNanos = ADAPTIVE_START_NANOS;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setFixedCapFps(int fps) {
+        fixedCapFps = Math.max(1, fps);
+    }
+
+    public int getFixedCapFps() {
+        return fixedCapFps;
+    }
+
+    public void setFrameBudgetNanos(long nanos) {
+        frameBudgetNanos = Math.max(1L, nanos);
+    }
+
+    public long getFrameBudgetNanos() {
+        return frameBudgetNanos;
+    }
+
+    // Called once at the start of every render frame
+    public void beginFrame(long now) {
+        if (lastFrameStart != 0) {
+            // Leave our own upload cost out so the governor doesn't chase itself
+            long gameOnly = Math.max(0L, now - lastFrameStart - uploadNanosThisFrame);
+            gameFrameNanos = smooth(gameFrameNanos, gameOnly);
+        }
+        lastFrameStart = now;
+        uploadNanosThisFrame = 0;
+
+        if (mode == Mode.ADAPTIVE) {
+            adaptInterval();
+        }
+        minIntervalNanos = computeMinInterval();
+    }
+
+    // Asked before converting and uploading a newly decoded frame
+    public boolean shouldUpload(long now) {
+        if (now - lastUploadTime < minIntervalNanos) {
+            deferrals++;
+            return false;
+        }
+        if (mode == Mode.HEADROOM && !hasHeadroom() && now - lastUploadTime < MAX_INTERVAL_NANOS) {
+            deferrals++;
+            return false;
+        }
+        lastUploadTime = now;
+        return true;
+    }
+
+    // Called after an upload with what it cost and the decoder's published frame count
+    public void recordUpload(long costNanos, long publishedFrames) {
+        uploadNanosThisFrame += costNanos;
+        uploadNanos = smooth(uploadNanos, costNanos);
+
+        long decoded = publishedFrames - lastPublishedFrames;
+        if (lastPublishedFrames != 0 && decoded > 0 && decoded < 1000) {
+            videoFrameNanos = smooth(videoFrameNanos, (double) (lastUploadTime - previousUploadTime) / decoded);
+        }
+        lastPublishedFrames = publishedFrames;
+        previousUploadTime = lastUploadTime;
+        uploads++;
+    }
+
+    private boolean hasHeadroom() {
+        return gameFrameNanos + uploadNanos <= frameBudgetNanos;
+    }
+
+    private void adaptInterval() {
+        double frame = gameFrameNanos + uploadNanos;
+        if (gameFrameNanos > frameBudgetNanos * 1.05) {
+            // The game misses its budget without us (or the cap is out of reach);
+            // uploading less wouldn't help, so hold the interval where it is
+            return;
+        }
+        if (frame > frameBudgetNanos * 1.05) {
+            // The upload is what pushes the frame over budget: back off quickly
+            adaptiveIntervalNanos = Math.min(MAX_INTERVAL_NANOS, (long) (adaptiveIntervalNanos * 1.25) + 1_000_000L);
+        } else if (frame < frameBudgetNanos * 0.9) {
+            // Comfortably inside the budget: recover gradually
+            adaptiveIntervalNanos = (long) (adaptiveIntervalNanos * 0.95);
+        }
+    }
+
+    private long computeMinInterval() {
+        switch (mode) {
+            case HALF_RATE:
+                return (long) (videoFrameNanos * 2) - frameBudgetNanos / 2;
+            case FIXED_CAP:
+                return 1_000_000_000L / fixedCapFps - frameBudgetNanos / 2;
+            case ADAPTIVE:
+                return adaptiveIntervalNanos;
+            default:
+                return 0L;
+        }
+    }
+
+    private static double smooth(double current, double sample) {
+        return current == 0 ? sample : current + (sample - current) * SMOOTHING;
+    }
+
+    private static Mode parseMode(String value) {
+        if (value != null) {
+            try {
+                return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                VideoPlayerMod.LOGGER.warn("Unknown upload mode '{}', using ADAPTIVE", value);
+            }
+        }
+        return Mode.ADAPTIVE;
+    }
+
+    public double getGameFrameMillis() {
+        return gameFrameNanos / 1_000_000.0;
+    }
+
+    public double getUploadMillis() {
+        return uploadNanos / 1_000_000.0;
+    }
+
+    public double getUploadRateCap() {
+        long interval = minIntervalNanos;
+        return interval > 0 ? 1_000_000_000.0 / interval : Double.POSITIVE_INFINITY;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+
+    public long getDeferrals() {
+        return deferrals;
+    }
+
+    // Human-readable summary of the current decision, for logs and the debug overlay
+    public String describe() {
+        double cap = getUploadRateCap();
+        return String.format(Locale.ROOT, "%s cap=%s frame=%.2fms budget=%.2fms upload=%.2fms",
+            mode,
+            Double.isInfinite(cap) ? "none" : String.format(Locale.ROOT, "%.1ffps", cap),
+            getGameFrameMillis(),
+            frameBudgetNanos / 1_000_000.0,
+            getUploadMillis());
+    }
+}
@@ -0,0 +1,83 @@
+package com.videoplayer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Shares one per-frame conversion/upload budget between all players. Each player's
+// own UploadGovernor still decides whether it wants an upload; the scheduler decides
+// who gets one this frame: the focused player first, then other visible players,
+// with hidden players throttled to a trickle. Once the budget is spent the remaining
+// players wait for the next frame, so four players cost about as much frame time as one.
+public class UploadScheduler {
+    public enum Priority {
+        FOCUSED,
+        VISIBLE,
+        HIDDEN
+    }
+
+    // Share of the game's frame budget that all video uploads together may use
+    private static final double BUDGET_FRACTION = Integer.getInteger("videoplayer.uploadBudgetPercent", 25) / 100.0;
+
+    // Players nobody is drawing still refresh now and then, so they are current when shown
+    private static final long HIDDEN_INTERVAL_NANOS = 1_000_000_000L / Math.max(1, Integer.getInteger("videoplayer.hiddenUploadFps", 2));
+
+    private final List<VideoPlayer> order = new ArrayList<>();
+    private long budgetNanos;
+    private long spentNanos;
+    private int uploadsThisFrame;
+    private long deferrals;
+
+    public void runFrame(List<VideoPlayer> players, VideoPlayer focused, long now, long frameBudgetNanos) {
+        budgetNanos = (long) (frameBudgetNanos * BUDGET_FRACTION);
+        spentNanos = 0;
+        uploadsThisFrame = 0;
+
+        order.clear();
+        order.addAll(players);
+        // Highest priority first; within a priority, whoever waited longest
+        order.sort(Comparator.<VideoPlayer>comparingInt(player -> priorityOf(player, focused, now).ordinal())
+            .thenComparingLong(VideoPlayer::getLastUploadNanos));
+
+        for (VideoPlayer player : order) {
+            if (!player.hasFrameDue(now)) {
+                continue;
+            }
+            Priority priority = priorityOf(player, focused, now);
+            if (priority == Priority.HIDDEN && now - player.getLastUploadNanos() < HIDDEN_INTERVAL_NANOS) {
+                continue;
+            }
+
+            // The first upload of a frame always goes ahead, so the focused player never stalls
+            long estimate = player.getEstimatedUploadNanos();
+            if (uploadsThisFrame > 0 && spentNanos + estimate > budgetNanos) {
+                deferrals++;
+                continue;
+            }
+
+            if (player.shouldUpload(now)) {
+                spentNanos += player.uploadPendingFrame(now);
+                uploadsThisFrame++;
+            }
+        }
+    }
+
+    public static Priority priorityOf(VideoPlayer player, VideoPlayer focused, long now) {
+        if (!player.isVisible(now)) {
+            return Priority.HIDDEN;
+        }
+        return player == focused ? Priority.FOCUSED : Priority.VISIBLE;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public long getSpentNanos() {
+        return spentNanos;
+    }
+
+    public long getDeferrals() {
+        return deferrals;
+    }
+}
@@ -1,145 +1,862 @@
 package com.videoplayer;
 
+import com.mojang.blaze3d.systems.CommandEncoder;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.videoplayer.mixin.NativeImageAccessor;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.option.GameOptions;
+import net.minecraft.client.texture.AbstractTexture;
 import net.minecraft.client.texture.NativeImage;
 import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.sound.SoundCategory;
 import net.minecraft.util.Identifier;
-import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryUtil;
 import uk.co.caprica.vlcj.factory.MediaPlayerFactory;
+import uk.co.caprica.vlcj.media.InfoApi;
+import uk.co.caprica.vlcj.media.Media;
+import uk.co.caprica.vlcj.media.MediaEventAdapter;
+import uk.co.caprica.vlcj.media.MediaParsedStatus;
+import uk.co.caprica.vlcj.media.MediaRef;
+import uk.co.caprica.vlcj.media.MediaStatistics;
+import uk.co.caprica.vlcj.media.ParseFlag;
+import uk.co.caprica.vlcj.media.VideoTrackInfo;
 import uk.co.caprica.vlcj.player.base.MediaPlayer;
+import uk.co.caprica.vlcj.player.base.MediaPlayerEventAdapter;
+import uk.co.caprica.vlcj.player.base.State;
+import uk.co.caprica.vlcj.player.base.TrackDescription;
 import uk.co.caprica.vlcj.player.embedded.EmbeddedMediaPlayer;
 import uk.co.caprica.vlcj.player.embedded.videosurface.CallbackVideoSurface;
+import uk.co.caprica.vlcj.player.embedded.videosurface.VideoSurface;
 import uk.co.caprica.vlcj.player.embedded.videosurface.VideoSurfaceAdapters;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormat;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormatCallback;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.RenderCallback;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.format.RV32BufferFormat;
 
+import jdk.jfr.FlightRecorder;
+
+import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VideoPlayer implements PlaylistQueue.Target {
+    // A view that hasn't reported its size for this long is no longer drawing the video
+    private static final long VISIBLE_TIMEOUT_NANOS = 250_000_000L;
+
+    // Longest a playlist entry may take to parse before it is played without a known size
+    private static final int PARSE_TIMEOUT_MILLIS = 10_000;
+
+    // Ask VLC for RGBA directly so frames can be copied without a swizzle
+    private static boolean preferRgbaChroma = Boolean.getBoolean("videoplayer.rgbaChroma");
 
-public class VideoPlayer {
-    private static final String TEXTURE_ID = "videoplayer:video_frame";
+    // Let VLC decode straight into our frame slots instead of copying out of its own buffers
+    private static final boolean DIRECT_DECODE = !"false".equals(System.getProperty("videoplayer.directDecode"));
 
-    private MediaPlayerFactory mediaPlayerFactory;
-    private EmbeddedMediaPlayer mediaPlayer;
-    private NativeImageBackedTexture texture;
+    // Sidecar .srt/.vtt files are shown by SubtitleOverlay instead of being blended into frames by VLC
+    private static final boolean SUBTITLES = !"false".equals(System.getProperty("videoplayer.subtitles"));
+
+    // Parses subtitle files for all players, off the render thread
+    private static final ExecutorService SUBTITLE_LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Subtitle-Loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Null until the VLC warm-up has finished
+    private volatile MediaPlayerFactory mediaPlayerFactory;
+    private volatile EmbeddedMediaPlayer mediaPlayer;
+    private final CompletableFuture<Void> ready;
+    // Registered under textureIdentifier: either a PBO streaming texture or, as a
+    // fallback, a NativeImage-backed one
+    private AbstractTexture texture;
+    private StreamingVideoTexture streamingTexture;
+    private NativeImageBackedTexture imageTexture;
     private Identifier textureIdentifier;
+    private final int id;
+    private final String textureName;
+    private static boolean streamingTextureFailed = false;
+
+    // Written by the VLC thread, read by the render thread
+    private volatile int videoWidth = 1920;
+    private volatile int videoHeight = 1080;
+    private volatile String videoChroma = FrameConverter.CHROMA_BGRA;
+
+    // Decoded frames handed from the VLC thread to the conversion stage, or straight
+    // to the upload when the stage is off
+    private final FrameExchange decodedFrames;
+
+    // Converts off the render thread; null when disabled, then the render thread converts
+    private final FrameConversionStage conversionStage;
+    // Holds frames until the master clock reaches them; null when disabled
+    private final PresentationQueue presentationQueue;
+    // Where the upload stage takes frames from
+    private final FrameExchange uploadFrames;
+
+    // Decode resolution follows the largest size the video is drawn at
+    private final DecodeSizeNegotiator sizeNegotiator = new DecodeSizeNegotiator();
+    private volatile String currentMrl;
+
+    // Cues for the current media; null when it has none
+    private volatile SubtitleTrack subtitles;
+    // Bumped on every media or subtitle change, so a slow parse can't attach to the wrong media
+    private final AtomicInteger subtitleGeneration = new AtomicInteger();
+
+    // Caps the upload rate so the game's frame time comes first
+    private final UploadGovernor uploadGovernor = new UploadGovernor();
+
+    // Skips converting and uploading the parts of a frame that didn't change
+    private final DirtyRegionTracker dirtyRegions = new DirtyRegionTracker();
+
+    // Stops decoding video while nothing draws it
+    private final VisibilityGovernor visibilityGovernor = new VisibilityGovernor();
+    // Video track to restore on resume; VLC thread only
+    private int suspendedVideoTrack = -1;
+
+    // VLC decoding/caching options for new media, and the check whether they are too expensive
+    private volatile PlaybackProfile profile;
+    private final ProfileAutoTuner autoTuner = new ProfileAutoTuner();
+    private long lastTuneSample;
 
-    private int videoWidth = 1920;
-    private int videoHeight = 1080;
-    private ByteBuffer videoBuffer;
-    private boolean textureNeedsUpdate = false;
+    // Null when VLC plays audio itself
+    private volatile GameAudioOutput audioOutput;
 
-    public VideoPlayer() {
+    // Timings and counters for the debug overlay and JFR
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final Runnable statsEventHook = this::emitStatsEvent;
+
+    // Render thread only
+    private long lastDrawnNanos;
+    private long lastUploadNanos;
+
+    // Run on VLC's event thread when the current media reaches its end
+    private final List<Runnable> finishedListeners = new CopyOnWriteArrayList<>();
+
+    // Players share the factory; the id, unique among open players, keeps their textures apart
+    public VideoPlayer(CompletableFuture<MediaPlayerFactory> factoryFuture, int id) {
+        this.id = id;
+        this.textureName = "video_frame_" + id;
+        // Without the game's audio there is no clock behind VLC's: VLC already hands frames
+        // over when they are due, so each one would be due on arrival and the mailbox does
+        presentationQueue = PresentationQueue.isEnabled() && GameAudioOutput.isEnabled() ? new PresentationQueue() : null;
+        if (FrameConversionStage.isEnabled()) {
+            FrameMailbox converterInput = new FrameMailbox();
+            decodedFrames = converterInput;
+            conversionStage = new FrameConversionStage(converterInput,
+                presentationQueue != null ? presentationQueue : new FrameMailbox(), metrics);
+            uploadFrames = conversionStage.getOutput();
+        } else {
+            conversionStage = null;
+            decodedFrames = presentationQueue != null ? presentationQueue : new FrameMailbox();
+            uploadFrames = decodedFrames;
+        }
+        // The player is created on the warm-up thread as soon as VLC is loaded
+        ready = factoryFuture.thenAccept(this::initPlayer);
+    }
+
+    private void initPlayer(MediaPlayerFactory factory) {
         try {
-            // Initialize VLC
-            mediaPlayerFactory = new MediaPlayerFactory();
-            mediaPlayer = mediaPlayerFactory.mediaPlayers().newEmbeddedMediaPlayer();
+            EmbeddedMediaPlayer mediaPlayer = factory.mediaPlayers().newEmbeddedMediaPlayer();
 
             // Set up video surface callback
             BufferFormatCallback bufferFormatCallback = new BufferFormatCallback() {
                 @Override
                 public BufferFormat getBufferFormat(int sourceWidth, int sourceHeight) {
-                    videoWidth = sourceWidth;
-                    videoHeight = sourceHeight;
-                    videoBuffer = BufferUtils.createByteBuffer(videoWidth * videoHeight * 4);
+                    // VLC scales to whatever size we ask for, so decode at the drawn size
+                    sizeNegotiator.setSourceSize(sourceWidth, sourceHeight);
+                    int[] decodeSize = sizeNegotiator.decodeSize(sourceWidth, sourceHeight);
+                    int width = decodeSize[0];
+                    int height = decodeSize[1];
+                    videoWidth = width;
+                    videoHeight = height;
+                    sizeNegotiator.setDecodingHeight(height);
+                    VideoPlayerMod.LOGGER.info("Decoding {}x{} source at {}x{}", sourceWidth, sourceHeight, width, height);
 
-                    // Initialize texture on main thread
-                    MinecraftClient.getInstance().execute(() -> {
-                        initTexture();
-                    });
+                    // The texture is (re)created by the upload stage from the first frame of this size
+
+                    if (preferRgbaChroma) {
+                        videoChroma = FrameConverter.CHROMA_RGBA;
+                        return new BufferFormat(FrameConverter.CHROMA_RGBA, width, height,
+                            new int[] {width * 4}, new int[] {height});
+                    }
 
-                    return new RV32BufferFormat(videoWidth, videoHeight);
+                    videoChroma = FrameConverter.CHROMA_BGRA;
+                    return new RV32BufferFormat(width, height);
                 }
 
                 @Override
                 public void allocatedBuffers(ByteBuffer[] buffers) {
-                    // No-op: we don't need to handle buffer allocation
+                    // No-op: frames are copied out of VLC's buffers in display()
                 }
             };
 
             RenderCallback renderCallback = new RenderCallback() {
                 @Override
                 public void display(MediaPlayer mediaPlayer, ByteBuffer[] nativeBuffers, BufferFormat bufferFormat) {
-                    if (nativeBuffers != null && nativeBuffers.length > 0) {
-                        // Copy video data
-                        videoBuffer.clear();
-                        nativeBuffers[0].rewind();
-                        videoBuffer.put(nativeBuffers[0]);
-                        videoBuffer.rewind();
-                        textureNeedsUpdate = true;
+                    if (nativeBuffers == null || nativeBuffers.length == 0) {
+                        return;
                     }
+
+                    // Copy video data into the free slot and publish it
+                    FrameDecodedEvent event = new FrameDecodedEvent();
+                    event.begin();
+                    long copyStart = System.nanoTime();
+                    ByteBuffer source = nativeBuffers[0];
+                    FrameMailbox.Frame frame = decodedFrames.beginWrite(
+                        bufferFormat.getWidth(), bufferFormat.getHeight(), bufferFormat.getChroma());
+                    int frameBytes = frame.getByteSize();
+                    if (source.capacity() < frameBytes) {
+                        decodedFrames.drop();
+                        return;
+                    }
+
+                    MemoryUtil.memCopy(MemoryUtil.memAddress0(source), frame.getAddress(), frameBytes);
+                    metrics.recordDisplayCopy(System.nanoTime() - copyStart);
+                    if (event.shouldCommit()) {
+                        event.width = frame.getWidth();
+                        event.height = frame.getHeight();
+                        event.bytes = frameBytes;
+                        event.copied = true;
+                        event.commit();
+                    }
+                    decodedFrames.publish();
                 }
             };
 
-            CallbackVideoSurface videoSurface = new CallbackVideoSurface(
-                bufferFormatCallback,
-                renderCallback,
-                true,
-                VideoSurfaceAdapters.getVideoSurfaceAdapter()
-            );
+            VideoSurface videoSurface;
+            if (DIRECT_DECODE) {
+                // Decoder writes into the slots the conversion stage or render thread reads from
+                videoSurface = new PooledVideoSurface(bufferFormatCallback, decodedFrames, metrics);
+            } else {
+                videoSurface = new CallbackVideoSurface(
+                    bufferFormatCallback,
+                    renderCallback,
+                    true,
+                    VideoSurfaceAdapters.getVideoSurfaceAdapter()
+                );
+            }
 
             mediaPlayer.videoSurface().set(videoSurface);
 
+            if (GameAudioOutput.isEnabled()) {
+                // PCM comes to us instead of VLC's audio output and plays through the game's OpenAL
+                GameAudioOutput output = new GameAudioOutput(textureName, VideoPlayer::gameAudioVolume);
+                mediaPlayer.audio().callback(GameAudioOutput.FORMAT, GameAudioOutput.RATE, GameAudioOutput.CHANNELS, output);
+                audioOutput = output;
+            }
+
+            mediaPlayer.events().addMediaPlayerEventListener(new MediaPlayerEventAdapter() {
+                @Override
+                public void error(MediaPlayer mediaPlayer) {
+                    // A cached stream URL may have been revoked; resolve it again next time
+                    String mrl = currentMrl;
+                    VideoPlayerMod.LOGGER.warn("Playback error for {}", mrl);
+                    if (mrl != null && VideoPlayerMod.getStreamResolver() != null) {
+                        VideoPlayerMod.getStreamResolver().invalidateStream(mrl);
+                    }
+                }
+
+                @Override
+                public void finished(MediaPlayer mediaPlayer) {
+                    for (Runnable listener : finishedListeners) {
+                        listener.run();
+                    }
+                }
+            });
+            FlightRecorder.addPeriodicEvent(PipelineStatsEvent.class, statsEventHook);
+
+            // Publish only once fully set up; other threads check mediaPlayer != null
+            this.mediaPlayerFactory = factory;
+            this.mediaPlayer = mediaPlayer;
             VideoPlayerMod.LOGGER.info("Video player initialized successfully");
         } catch (Exception e) {
             VideoPlayerMod.LOGGER.error("Failed to initialize video player", e);
         }
     }
 
-    private void initTexture() {
-        if (texture != null) {
-            texture.close();
+    private void initTexture(int width, int height) {
+        if (streamingTexture != null && streamingTexture.getWidth() == width && streamingTexture.getHeight() == height) {
+            return;
+        }
+        if (imageTexture != null) {
+            NativeImage current = imageTexture.getImage();
+            if (current != null && current.getWidth() == width && current.getHeight() == height) {
+                return;
+            }
+        }
+        closeTexture();
+
+        if (!streamingTextureFailed && StreamingVideoTexture.isSupported()) {
+            try {
+                streamingTexture = new StreamingVideoTexture(width, height);
+                texture = streamingTexture;
+            } catch (Exception e) {
+                VideoPlayerMod.LOGGER.warn("PBO streaming texture unavailable, falling back to NativeImage uploads", e);
+                streamingTextureFailed = true;
+            }
+        }
+
+        if (texture == null) {
+            // Create NativeImage and texture
+            NativeImage image = new NativeImage(NativeImage.Format.RGBA, width, height, false);
+            imageTexture = new NativeImageBackedTexture(() -> textureName, image);
+            texture = imageTexture;
         }
 
-        // Create NativeImage and texture
-        NativeImage image = new NativeImage(NativeImage.Format.RGBA, videoWidth, videoHeight, false);
-        texture = new NativeImageBackedTexture(() -> "video_frame", image);
-        textureIdentifier = Identifier.of(TEXTURE_ID);
+        textureIdentifier = Identifier.of(VideoPlayerMod.MOD_ID, textureName);
         MinecraftClient.getInstance().getTextureManager().registerTexture(
             textureIdentifier,
             texture
         );
+        dirtyRegions.invalidate();
+
+        VideoPlayerMod.LOGGER.info("Texture initialized: {}x{} ({})", width, height,
+            streamingTexture != null ? "PBO streaming" : "NativeImage");
+    }
+
+    private void closeTexture() {
+        if (texture != null) {
+            texture.close();
+        }
+        texture = null;
+        streamingTexture = null;
+        imageTexture = null;
+    }
+
+    // Completes once VLC is loaded and the player can take media
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return mediaPlayer != null;
+    }
 
-        VideoPlayerMod.LOGGER.info("Texture initialized: {}x{}", videoWidth, videoHeight);
+    // VLC could not be loaded or the player could not be created on it; this won't change
+    public boolean isFailed() {
+        return ready.isDone() && mediaPlayer == null;
     }
 
     public void loadVideo(String filePath) {
+        if (mediaPlayer == null && !ready.isDone()) {
+            VideoPlayerMod.LOGGER.info("VLC is still starting, will load {} when ready", filePath);
+            ready.thenRun(() -> loadVideo(filePath));
+            return;
+        }
         if (mediaPlayer != null) {
             VideoPlayerMod.LOGGER.info("Loading video: {}", filePath);
-            mediaPlayer.media().play(filePath);
-        }
-    }
-
-    public void updateTexture() {
-        if (textureNeedsUpdate && texture != null && videoBuffer != null) {
-            MinecraftClient.getInstance().execute(() -> {
-                try {
-                    NativeImage image = texture.getImage();
-                    if (image != null) {
-                        // Copy pixel data from video buffer to texture
-                        videoBuffer.rewind();
-                        for (int y = 0; y < videoHeight; y++) {
-                            for (int x = 0; x < videoWidth; x++) {
-                                int b = videoBuffer.get() & 0xFF;
-                                int g = videoBuffer.get() & 0xFF;
-                                int r = videoBuffer.get() & 0xFF;
-                                int a = videoBuffer.get() & 0xFF;
-
-                                // ABGR format for NativeImage
-                                int color = (a << 24) | (b << 16) | (g << 8) | r;
-                                image.setColor(x, y, color);
+            setCurrentMrl(filePath);
+            mediaPlayer.media().play(filePath, mediaOptions());
+        }
+    }
+
+    // Blocking, for the playlist's preparer thread: creates and parses the media ahead of
+    // time, so playPrepared() starts it with its size known. Parsing reads the container
+    // headers, which is most of VLC's open latency
+    @Override
+    public PlaylistQueue.Prepared prepare(String mrl) {
+        try {
+            ready.get();
+        } catch (Exception e) {
+            return null;
+        }
+        MediaPlayerFactory factory = mediaPlayerFactory;
+        Media media = factory != null ? factory.media().newMedia(mrl, mediaOptions()) : null;
+        if (media == null) {
+            return null;
+        }
+
+        CountDownLatch parsed = new CountDownLatch(1);
+        media.events().addMediaEventListener(new MediaEventAdapter() {
+            @Override
+            public void mediaParsedChanged(Media media, MediaParsedStatus newStatus) {
+                parsed.countDown();
+            }
+        });
+        try {
+            if (media.parsing().parse(PARSE_TIMEOUT_MILLIS, ParseFlag.PARSE_LOCAL, ParseFlag.PARSE_NETWORK)) {
+                parsed.await(PARSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<VideoTrackInfo> tracks = media.info().videoTracks();
+        int width = tracks.isEmpty() ? 0 : tracks.get(0).width();
+        int height = tracks.isEmpty() ? 0 : tracks.get(0).height();
+        return new PlaylistQueue.Prepared(media, width, height, media.info().duration());
+    }
+
+    @Override
+    public void playPrepared(String mrl, PlaylistQueue.Prepared prepared) {
+        playPrepared(mrl, prepared.media, prepared.width, prepared.height);
+    }
+
+    // Plays already-parsed media; a known source size lets the texture be created
+    // before the first frame instead of when it arrives
+    private void playPrepared(String mrl, Media media, int sourceWidth, int sourceHeight) {
+        EmbeddedMediaPlayer mediaPlayer = this.mediaPlayer;
+        if (mediaPlayer == null) {
+            return;
+        }
+        VideoPlayerMod.LOGGER.info("Loading prepared video: {}", mrl);
+        setCurrentMrl(mrl);
+
+        if (sourceWidth > 0 && sourceHeight > 0) {
+            sizeNegotiator.setSourceSize(sourceWidth, sourceHeight);
+            int[] decodeSize = sizeNegotiator.decodeSize(sourceWidth, sourceHeight);
+            MinecraftClient.getInstance().execute(() -> initTexture(decodeSize[0], decodeSize[1]));
+        }
+
+        MediaRef mediaRef = media.newMediaRef();
+        mediaPlayer.submit(() -> {
+            // The player keeps its own reference to the media
+            mediaPlayer.media().play(mediaRef);
+            mediaRef.release();
+        });
+    }
+
+    @Override
+    public void addFinishedListener(Runnable listener) {
+        finishedListeners.add(listener);
+    }
+
+    @Override
+    public String getCurrentMrl() {
+        return currentMrl;
+    }
+
+    private void setCurrentMrl(String mrl) {
+        currentMrl = mrl;
+        subtitles = null;
+        int generation = subtitleGeneration.incrementAndGet();
+        Path video = localFile(mrl);
+        if (SUBTITLES && video != null) {
+            SUBTITLE_LOADER.execute(() -> {
+                Path sidecar = findSidecarSubtitles(video);
+                if (sidecar != null) {
+                    loadSubtitles(sidecar, generation);
+                }
+            });
+        }
+    }
+
+    // Loads an .srt or .vtt file for the current media in the background
+    public void loadSubtitles(Path path) {
+        int generation = subtitleGeneration.incrementAndGet();
+        SUBTITLE_LOADER.execute(() -> loadSubtitles(path, generation));
+    }
+
+    // Subtitle loader thread
+    private void loadSubtitles(Path path, int generation) {
+        long start = System.nanoTime();
+        try {
+            SubtitleTrack track = SubtitleTrack.load(path);
+            if (subtitleGeneration.get() == generation) {
+                subtitles = track;
+                VideoPlayerMod.LOGGER.info("Loaded {} subtitle cues from {} in {} ms", track.size(), path.getFileName(),
+                    (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Could not load subtitles {}: {}", path, e.getMessage());
+        }
+    }
+
+    public SubtitleTrack getSubtitles() {
+        return subtitles;
+    }
+
+    // video.srt or video.vtt next to video.mp4
+    private static Path findSidecarSubtitles(Path video) {
+        String name = video.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        for (String extension : new String[] {".srt", ".vtt"}) {
+            Path candidate = video.resolveSibling(base + extension);
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // The file behind a plain path or file: MRL; null for anything else
+    static Path localFile(String mrl) {
+        if (mrl == null) {
+            return null;
+        }
+        try {
+            Path path = mrl.startsWith("file:") ? Path.of(URI.create(mrl)) : mrl.contains("://") ? null : Path.of(mrl);
+            return path != null && Files.isRegularFile(path) ? path : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Called by every view that draws the video, every frame it draws it
+    public void reportViewSize(int pixelWidth, int pixelHeight) {
+        lastDrawnNanos = System.nanoTime();
+        sizeNegotiator.reportViewSize(pixelWidth, pixelHeight);
+        if (sizeNegotiator.update(System.nanoTime())) {
+            renegotiateDecodeSize();
+        }
+    }
+
+    private void renegotiateDecodeSize() {
+        if (mediaPlayer == null || currentMrl == null) {
+            return;
+        }
+
+        int[] wanted = sizeNegotiator.decodeSize(sizeNegotiator.getSourceWidth(), sizeNegotiator.getSourceHeight());
+        if (wanted[0] == videoWidth && wanted[1] == videoHeight) {
+            return;
+        }
+
+        // VLC only asks for a buffer format when the video output starts, so restart
+        // the media at the current position to have it pick up the new size
+        VideoPlayerMod.LOGGER.info("Renegotiating decode size to {}x{}", wanted[0], wanted[1]);
+        restartAtCurrentTime();
+    }
+
+    // Plays the current media again from where it is, with the current media options
+    private void restartAtCurrentTime() {
+        EmbeddedMediaPlayer mediaPlayer = this.mediaPlayer;
+        String mrl = currentMrl;
+        if (mediaPlayer == null || mrl == null) {
+            return;
+        }
+        mediaPlayer.submit(() -> {
+            State state = mediaPlayer.status().state();
+            if (state != State.PLAYING && state != State.PAUSED) {
+                return;
+            }
+
+            String[] profileOptions = mediaOptions();
+            String[] options = new String[profileOptions.length + 1];
+            options[0] = ":start-time=" + (mediaPlayer.status().time() / 1000.0);
+            System.arraycopy(profileOptions, 0, options, 1, profileOptions.length);
+            if (state == State.PLAYING) {
+                mediaPlayer.media().play(mrl, options);
+            } else {
+                mediaPlayer.media().startPaused(mrl, options);
+            }
+        });
+    }
+
+    // Takes effect with the next media, or right away (restarting in place) when restart is set
+    public void setProfile(PlaybackProfile profile, boolean restart) {
+        this.profile = profile;
+        sizeNegotiator.setMaxHeight(profile.getMaxDecodeHeight());
+        autoTuner.reset();
+        if (restart) {
+            VideoPlayerMod.LOGGER.info("Applying playback profile {} to {}", profile.getName(), textureName);
+            restartAtCurrentTime();
+        }
+    }
+
+    public PlaybackProfile getProfile() {
+        return profile;
+    }
+
+    private String[] mediaOptions() {
+        PlaybackProfile profile = this.profile;
+        String[] options = profile != null ? profile.mediaOptions() : new String[0];
+        if (SUBTITLES) {
+            options = Arrays.copyOf(options, options.length + 1);
+            options[options.length - 1] = ":no-sub-autodetect-file";
+        }
+        return options;
+    }
+
+    // Once a second while in auto mode: steps the profiles down when this player can't keep up
+    public void updateAutoTune(long now, PlaybackProfiles profiles) {
+        EmbeddedMediaPlayer mediaPlayer = this.mediaPlayer;
+        if (mediaPlayer == null || !profiles.isAuto() || now - lastTuneSample < 1_000_000_000L) {
+            return;
+        }
+        lastTuneSample = now;
+
+        InfoApi info = mediaPlayer.media().info();
+        MediaStatistics stats = info != null ? info.statistics() : null;
+        if (stats == null) {
+            return;
+        }
+        double expectedFps = 0;
+        for (VideoTrackInfo track : info.videoTracks()) {
+            if (track.frameRateBase() > 0) {
+                expectedFps = (double) track.frameRate() / track.frameRateBase();
+                break;
+            }
+        }
+
+        boolean playing = mediaPlayer.status().isPlaying() && !visibilityGovernor.isSuspended();
+        switch (autoTuner.update(now, currentMrl, playing, stats.decodedVideo(), stats.picturesDisplayed(),
+            stats.picturesLost(), expectedFps)) {
+            case TOO_SLOW:
+                VideoPlayerMod.LOGGER.info("Profile {} can't keep up on {}: {} fps decoded of {}, {}% of pictures lost",
+                    profile != null ? profile.getName() : "default", textureName, String.format("%.1f", autoTuner.getLastDecodeRate()),
+                    String.format("%.1f", expectedFps), String.format("%.0f", autoTuner.getLastLostFraction() * 100));
+                if (!profiles.stepDown()) {
+                    VideoPlayerMod.LOGGER.info("Already at the cheapest playback profile");
+                }
+                break;
+            case KEEPS_UP:
+                VideoPlayerMod.LOGGER.info("Profile {} keeps up on {}: {} fps decoded, {}% of pictures lost",
+                    profile != null ? profile.getName() : "default", textureName, String.format("%.1f", autoTuner.getLastDecodeRate()),
+                    String.format("%.0f", autoTuner.getLastLostFraction() * 100));
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Upload stage, driven once per render frame by VideoPlayerManager before anything
+    // draws the video, so there is at most one upload per decoded frame no matter how
+    // many views use the texture. beginRenderFrame shows what the last frame uploaded.
+    public void beginRenderFrame(long now, long frameBudgetNanos) {
+        uploadGovernor.setFrameBudgetNanos(frameBudgetNanos);
+        uploadGovernor.beginFrame(now);
+
+        if (streamingTexture != null) {
+            streamingTexture.swapIfPending();
+        }
+    }
+
+    // Suspends or resumes video decoding depending on whether any view draws the video
+    public void updateVisibility(long now, boolean windowMinimized) {
+        EmbeddedMediaPlayer mediaPlayer = this.mediaPlayer;
+        if (mediaPlayer == null) {
+            return;
+        }
+
+        boolean visible = isVisible(now) && !windowMinimized;
+        boolean playing = mediaPlayer.status().isPlaying();
+        switch (visibilityGovernor.update(now, visible, playing, currentMrl, decodedFrames.getPublishedFrames())) {
+            case SUSPEND:
+                VideoPlayerMod.LOGGER.info("Video not visible, suspending video decoding for {}", textureName);
+                mediaPlayer.submit(() -> {
+                    suspendedVideoTrack = mediaPlayer.video().track();
+                    mediaPlayer.video().setTrack(-1);
+                });
+                break;
+            case RELEASE_BUFFERS:
+                // The decoder has gone quiet, so nothing writes into the slots any more
+                if (conversionStage != null) {
+                    conversionStage.release();
+                } else {
+                    decodedFrames.release();
+                }
+                break;
+            case RESUME:
+                VideoPlayerMod.LOGGER.info("Video visible again, resuming video decoding for {}", textureName);
+                mediaPlayer.submit(() -> {
+                    int track = suspendedVideoTrack;
+                    if (track < 0) {
+                        for (TrackDescription description : mediaPlayer.video().trackDescriptions()) {
+                            if (description.id() >= 0) {
+                                track = description.id();
+                                break;
                             }
                         }
-
-                        texture.upload();
-                        textureNeedsUpdate = false;
                     }
-                } catch (Exception e) {
-                    VideoPlayerMod.LOGGER.error("Error updating texture", e);
+                    mediaPlayer.video().setTrack(track);
+                    // Seeking in place restarts decoding at a keyframe right away
+                    mediaPlayer.controls().setTime(mediaPlayer.status().time());
+                });
+                dirtyRegions.invalidate();
+                break;
+            default:
+                break;
+        }
+
+        metrics.setVideoSuspended(visibilityGovernor.isSuspended());
+        metrics.setSuspendedNanos(visibilityGovernor.getSuspendedNanos(now));
+        metrics.setCpuSavedPercent(visibilityGovernor.getCpuSavedPercent());
+    }
+
+    public VisibilityGovernor getVisibilityGovernor() {
+        return visibilityGovernor;
+    }
+
+    public boolean hasFrameDue(long now) {
+        return uploadFrames.hasFrameDue(getPresentationClock(now));
+    }
+
+    // Master clock frames are presented against: VLC's, delayed by how late the game's
+    // audio output plays, so the picture lines up with the sound as heard. Until the
+    // audio clock is valid (or for media without sound) frames are due as they arrive
+    public long getPresentationClock(long now) {
+        GameAudioOutput audio = audioOutput;
+        return audio != null ? audio.getClockNanos(now) : now;
+    }
+
+    // Asks this player's governor; true means the caller must upload now
+    public boolean shouldUpload(long now) {
+        return uploadGovernor.shouldUpload(now);
+    }
+
+    // Returns what the upload cost
+    public long uploadPendingFrame(long now) {
+        long start = System.nanoTime();
+        uploadLatestFrame(now);
+        lastUploadNanos = now;
+        return System.nanoTime() - start;
+    }
+
+    public void endRenderFrame(long now) {
+        metrics.sample(now, decodedFrames.getPublishedFrames());
+        long textureBytes = streamingTexture != null ? streamingTexture.getAllocatedBytes()
+            : imageTexture != null ? (long) videoWidth * videoHeight * 4 : 0L;
+        long stageBytes = conversionStage != null ? conversionStage.getAllocatedBytes() : 0L;
+        metrics.setOffHeapBytes(decodedFrames.getAllocatedBytes() + stageBytes + textureBytes);
+    }
+
+    public long getEstimatedUploadNanos() {
+        return (long) (uploadGovernor.getUploadMillis() * 1_000_000.0);
+    }
+
+    public long getLastUploadNanos() {
+        return lastUploadNanos;
+    }
+
+    // Whether any view drew the video recently
+    public boolean isVisible(long now) {
+        return lastDrawnNanos != 0 && now - lastDrawnNanos < VISIBLE_TIMEOUT_NANOS;
+    }
+
+    public String getTextureName() {
+        return textureName;
+    }
+
+    private void uploadLatestFrame(long now) {
+        try {
+            FrameMailbox.Frame frame = uploadFrames.acquire(getPresentationClock(now));
+            if (frame == null) {
+                return;
+            }
+            FrameUploadEvent event = new FrameUploadEvent();
+            event.begin();
+            long uploadStart = System.nanoTime();
+
+            // Frames carry their own size, so a resolution change can never mix dimensions
+            initTexture(frame.getWidth(), frame.getHeight());
+
+            long conversionNanos = 0;
+            if (streamingTexture != null) {
+                conversionNanos = uploadStreamingFrame(frame);
+            } else if (imageTexture != null && imageTexture.getImage() != null) {
+                conversionNanos = uploadFrame(frame, imageTexture.getImage());
+            }
+
+            long uploadEnd = System.nanoTime();
+            long latency = uploadEnd - frame.getPublishedNanos();
+            uploadGovernor.recordUpload(uploadEnd - uploadStart, decodedFrames.getPublishedFrames());
+            if (conversionStage != null) {
+                // Frames are already RGBA; copying them into the texture is part of the upload
+                metrics.recordUpload(uploadEnd - uploadStart, latency);
+            } else {
+                metrics.recordConversion(conversionNanos);
+                metrics.recordUpload(uploadEnd - uploadStart - conversionNanos, latency);
+            }
+
+            if (event.shouldCommit()) {
+                event.width = frame.getWidth();
+                event.height = frame.getHeight();
+                event.bytes = frame.getByteSize();
+                event.conversionTime = conversionNanos;
+                event.latency = latency;
+                event.backend = streamingTexture != null ? "pbo" : "native-image";
+                event.commit();
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.error("Error updating texture", e);
+        }
+    }
+
+    // Both upload paths return the time spent converting pixels
+    private long uploadStreamingFrame(FrameMailbox.Frame frame) {
+        // The two textures alternate, so each one is two uploads behind; partial
+        // updates would need both frames' rectangles, so only skip unchanged frames
+        if (dirtyRegions.analyze(frame.getAddress(), frame.getWidth(), frame.getHeight()) != DirtyRegionTracker.Result.NONE) {
+            try {
+                return streamingTexture.upload(frame);
+            } catch (Exception e) {
+                VideoPlayerMod.LOGGER.warn("PBO upload failed, falling back to NativeImage uploads", e);
+                streamingTextureFailed = true;
+                closeTexture();
+                initTexture(frame.getWidth(), frame.getHeight());
+            }
+        }
+        return 0L;
+    }
+
+    private long uploadFrame(FrameMailbox.Frame frame, NativeImage image) {
+        // Convert straight into the image's native pixel memory
+        long pixels = ((NativeImageAccessor) (Object) image).getPointer();
+        boolean swizzle = FrameConverter.needsSwizzle(frame.getChroma());
+        long conversionNanos = 0;
+
+        switch (dirtyRegions.analyze(frame.getAddress(), frame.getWidth(), frame.getHeight())) {
+            case NONE:
+                // Identical to what the texture already shows
+                break;
+            case PARTIAL:
+                CommandEncoder encoder = RenderSystem.getDevice().createCommandEncoder();
+                for (int i = 0; i < dirtyRegions.getRectCount(); i++) {
+                    int x = dirtyRegions.getRectX(i);
+                    int y = dirtyRegions.getRectY(i);
+                    int width = dirtyRegions.getRectWidth(i);
+                    int height = dirtyRegions.getRectHeight(i);
+                    long conversionStart = System.nanoTime();
+                    FrameConverter.convertRect(frame.getBuffer(), pixels, frame.getWidth(), x, y, width, height, swizzle);
+                    conversionNanos += System.nanoTime() - conversionStart;
+                    encoder.writeToTexture(imageTexture.getGlTexture(), image, 0, x, y, width, height, x, y);
                 }
-            });
+                break;
+            default:
+                long conversionStart = System.nanoTime();
+                FrameConverter.convert(frame.getBuffer(), pixels, frame.getWidth(), frame.getHeight(), swizzle);
+                conversionNanos = System.nanoTime() - conversionStart;
+                imageTexture.upload();
+                break;
+        }
+        return conversionNanos;
+    }
+
+    private void emitStatsEvent() {
+        PipelineStatsEvent event = new PipelineStatsEvent();
+        event.decodeRate = metrics.getDecodeRate();
+        event.uploadRate = metrics.getUploadRate();
+        event.publishedFrames = decodedFrames.getPublishedFrames();
+        event.overwrittenFrames = decodedFrames.getOverwrittenFrames();
+        event.droppedFrames = decodedFrames.getDroppedFrames();
+        event.staleConvertedFrames = conversionStage != null ? uploadFrames.getOverwrittenFrames() : 0L;
+        if (presentationQueue != null) {
+            event.avOffsetMillis = presentationQueue.getAvOffsetMillis();
+            event.presentJitterMillis = presentationQueue.getJitterMillis();
+            event.repeatedFrames = presentationQueue.getRepeatedFrames();
+            event.lateFrames = presentationQueue.getLateFrames();
+        }
+        event.offHeapBytes = metrics.getOffHeapBytes();
+        event.player = textureName;
+        event.videoSuspended = visibilityGovernor.isSuspended();
+        event.cpuSavedPercent = visibilityGovernor.getCpuSavedPercent();
+        GameAudioOutput audio = audioOutput;
+        if (audio != null) {
+            event.audioLatencyMillis = audio.getLatencyMillis();
+            event.audioUnderruns = audio.getUnderruns();
+            event.audioOverruns = audio.getOverruns();
         }
+        event.commit();
     }
 
     public void togglePlayPause() {
@@ -154,6 +871,25 @@ public class VideoPlayer {
         }
     }
 
+    public boolean isPlaying() {
+        return mediaPlayer != null && mediaPlayer.status().isPlaying();
+    }
+
+    public long getTimeMillis() {
+        return mediaPlayer != null ? Math.max(0, mediaPlayer.status().time()) : 0;
+    }
+
+    // 0 while unknown, e.g. before the media is parsed or for live streams
+    public long getLengthMillis() {
+        return mediaPlayer != null ? Math.max(0, mediaPlayer.status().length()) : 0;
+    }
+
+    public void seek(long timeMillis) {
+        if (mediaPlayer != null && mediaPlayer.status().isSeekable()) {
+            mediaPlayer.controls().setTime(Math.max(0, timeMillis));
+        }
+    }
+
     public void stop() {
         if (mediaPlayer != null) {
             mediaPlayer.controls().stop();
@@ -162,18 +898,27 @@ public class VideoPlayer {
     }
 
     public void cleanup() {
+        FlightRecorder.removePeriodicEvent(statsEventHook);
+        ready.cancel(false);
+
         if (mediaPlayer != null) {
             mediaPlayer.controls().stop();
             mediaPlayer.release();
         }
+        if (audioOutput != null) {
+            // VLC no longer calls in once the player is released
+            audioOutput.close();
+        }
 
-        if (mediaPlayerFactory != null) {
-            mediaPlayerFactory.release();
+        if (conversionStage != null) {
+            conversionStage.close();
         }
+        decodedFrames.release();
 
         if (texture != null && textureIdentifier != null) {
-            // Texture will be cleaned up automatically or manually close it
-            texture.close();
+            // Unregistered as well, since a window opened later reuses this id
+            MinecraftClient.getInstance().getTextureManager().destroyTexture(textureIdentifier);
+            closeTexture();
             textureIdentifier = null;
         }
 
@@ -181,15 +926,66 @@ public class VideoPlayer {
     }
 
     public boolean hasTexture() {
-        return texture != null && textureIdentifier != null;
+        StreamingVideoTexture streaming = streamingTexture;
+        return texture != null && textureIdentifier != null && (streaming == null || streaming.hasFrame());
+    }
+
+    public int getId() {
+        return id;
     }
 
     public Identifier getTextureIdentifier() {
-        // Update texture before returning
-        updateTexture();
+        // Uploads happen once per frame in VideoPlayerManager.onRenderFrame, not per draw
         return textureIdentifier;
     }
 
+    // Video audio follows the Master and Jukebox/Note Blocks sliders; read on the audio pump
+    private static double gameAudioVolume() {
+        GameOptions options = MinecraftClient.getInstance().options;
+        return options.getSoundVolume(SoundCategory.MASTER) * options.getSoundVolume(SoundCategory.RECORDS);
+    }
+
+    public static void setPreferRgbaChroma(boolean preferRgba) {
+        preferRgbaChroma = preferRgba;
+    }
+
+    public static boolean isPreferRgbaChroma() {
+        return preferRgbaChroma;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public DirtyRegionTracker getDirtyRegions() {
+        return dirtyRegions;
+    }
+
+    public UploadGovernor getUploadGovernor() {
+        return uploadGovernor;
+    }
+
+    public DecodeSizeNegotiator getSizeNegotiator() {
+        return sizeNegotiator;
+    }
+
+    public GameAudioOutput getAudioOutput() {
+        return audioOutput;
+    }
+
+    public FrameExchange getDecodedFrames() {
+        return decodedFrames;
+    }
+
+    // Converted frames waiting for upload; the decoded frames when the stage is off
+    public FrameExchange getUploadFrames() {
+        return uploadFrames;
+    }
+
+    public PresentationQueue getPresentationQueue() {
+        return presentationQueue;
+    }
+
     public int getVideoWidth() {
         return videoWidth;
     }
@@ -2,6 +2,7 @@ package com.videoplayer;
 
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.RenderTickCounter;
@@ -13,8 +14,11 @@ public class VideoPlayerHud implements HudRenderCallback {
     private int videoWidth = 640;
     private int videoHeight = 360;
     private boolean visible = false;
+    private final SubtitleOverlay subtitleOverlay = new SubtitleOverlay();
 
-    private static final int PLAY_PAUSE_BUTTON_SIZE = 48;
+    // Controls are laid out once per size and drawn from a cached texture
+    private final HudControlsLayout controlsLayout = new HudControlsLayout();
+    private final ControlOverlay controlOverlay = new ControlOverlay(controlsLayout);
 
     public VideoPlayerHud(VideoPlayer videoPlayer) {
         this.videoPlayer = videoPlayer;
@@ -66,6 +70,10 @@ public class VideoPlayerHud implements HudRenderCallback {
 
         MinecraftClient client = MinecraftClient.getInstance();
 
+        // Let the decoder know how many real pixels the video covers
+        double scale = client.getWindow().getScaleFactor();
+        videoPlayer.reportViewSize((int) (videoWidth * scale), (int) (videoHeight * scale));
+
         // Only render if we have a texture
         if (videoPlayer.hasTexture()) {
             // Draw video frame
@@ -82,41 +90,82 @@ public class VideoPlayerHud implements HudRenderCallback {
             double mouseX = client.mouse.getX() * client.getWindow().getScaledWidth() / client.getWindow().getWidth();
             double mouseY = client.mouse.getY() * client.getWindow().getScaledHeight() / client.getWindow().getHeight();
 
-            if (isMouseOverVideo((int) mouseX, (int) mouseY)) {
-                drawPlayPauseOverlay(drawContext, (int) mouseX, (int) mouseY);
+            // Cues move up above the time label and seek bar while the controls show
+            boolean showControls = isMouseOverVideo((int) mouseX, (int) mouseY);
+            controlsLayout.update(videoWidth, videoHeight, videoPlayer.getLengthMillis() > 0);
+            int subtitleMargin = showControls
+                ? Math.max(SubtitleOverlay.BOTTOM_MARGIN, controlsLayout.bottomReserve() + 2)
+                : SubtitleOverlay.BOTTOM_MARGIN;
+            subtitleOverlay.draw(drawContext, client.textRenderer, videoPlayer, videoX, videoY, videoWidth, videoHeight, subtitleMargin);
+
+            if (showControls) {
+                controlOverlay.draw(drawContext, videoX, videoY, videoPlayer,
+                    controlsLayout.hitTest(mouseX - videoX, mouseY - videoY));
             }
         }
-    }
 
-    private boolean isMouseOverVideo(int mouseX, int mouseY) {
-        return mouseX >= videoX && mouseX <= videoX + videoWidth &&
-               mouseY >= videoY && mouseY <= videoY + videoHeight;
+        if (VideoPlayerMod.isMetricsVisible()) {
+            drawMetrics(drawContext, client.textRenderer, videoPlayer, videoX + 2, videoY + 2);
+        }
     }
 
-    private void drawPlayPauseOverlay(DrawContext context, int mouseX, int mouseY) {
-        int buttonX = videoX + (videoWidth - PLAY_PAUSE_BUTTON_SIZE) / 2;
-        int buttonY = videoY + (videoHeight - PLAY_PAUSE_BUTTON_SIZE) / 2;
-
-        // Check if mouse is over the button
-        boolean isHovered = mouseX >= buttonX && mouseX <= buttonX + PLAY_PAUSE_BUTTON_SIZE &&
-                           mouseY >= buttonY && mouseY <= buttonY + PLAY_PAUSE_BUTTON_SIZE;
-
-        // Semi-transparent background
-        int bgColor = isHovered ? 0xCC000000 : 0x99000000;
-        context.fill(buttonX, buttonY, buttonX + PLAY_PAUSE_BUTTON_SIZE, buttonY + PLAY_PAUSE_BUTTON_SIZE, bgColor);
-        context.drawBorder(buttonX, buttonY, PLAY_PAUSE_BUTTON_SIZE, PLAY_PAUSE_BUTTON_SIZE, 0xFFFFFFFF);
+    // Pipeline stats box, shared with VideoPlayerScreen
+    public static void drawMetrics(DrawContext context, TextRenderer textRenderer, VideoPlayer videoPlayer, int x, int y) {
+        PipelineMetrics metrics = videoPlayer.getMetrics();
+        FrameExchange decoded = videoPlayer.getDecodedFrames();
+
+        String[] lines = {
+            String.format("decode %.1f fps  upload %.1f fps", metrics.getDecodeRate(), metrics.getUploadRate()),
+            String.format("copy %.2f  decode %.2f ms", metrics.getDisplayCopyMillis(), metrics.getDecodeWriteMillis()),
+            String.format("convert %.2f  upload %.2f ms", metrics.getConversionMillis(), metrics.getUploadMillis()),
+            String.format("latency %.1f ms  (converted after %.1f ms, %d threads)", metrics.getLatencyMillis(),
+                metrics.getConversionLatencyMillis(), FrameConversionStage.getThreads()),
+            String.format("frames %d  overwritten %d  dropped %d",
+                decoded.getPublishedFrames(), decoded.getOverwrittenFrames(), decoded.getDroppedFrames()),
+            String.format("stale converted %d", videoPlayer.getUploadFrames() != decoded
+                ? videoPlayer.getUploadFrames().getOverwrittenFrames() : 0L),
+            String.format("off-heap %.1f MB", metrics.getOffHeapBytes() / (1024.0 * 1024.0)),
+            String.format("unchanged %.0f%%", videoPlayer.getDirtyRegions().getSkippedFraction() * 100),
+            metrics.isVideoSuspended() || metrics.getSuspendedSeconds() > 0
+                ? String.format("%s, %.0f s hidden, cpu saved %s", metrics.isVideoSuspended() ? "suspended" : "active",
+                    metrics.getSuspendedSeconds(),
+                    metrics.getCpuSavedPercent() < 0 ? "n/a" : String.format("%.0f%%", metrics.getCpuSavedPercent()))
+                : "decoding video",
+            videoPlayer.getUploadGovernor().describe(),
+            describeAudio(videoPlayer.getAudioOutput()),
+            describePresentation(videoPlayer.getPresentationQueue())
+        };
+
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, textRenderer.getWidth(line));
+        }
+        int lineHeight = textRenderer.fontHeight + 1;
+        context.fill(x, y, x + width + 4, y + lines.length * lineHeight + 3, 0xAA000000);
+        for (int i = 0; i < lines.length; i++) {
+            context.drawText(textRenderer, lines[i], x + 2, y + 2 + i * lineHeight, 0xFFFFFFFF, false);
+        }
+    }
 
-        // Draw play triangle symbol
-        int symbolX = buttonX + PLAY_PAUSE_BUTTON_SIZE / 2;
-        int symbolY = buttonY + PLAY_PAUSE_BUTTON_SIZE / 2;
-        int symbolSize = PLAY_PAUSE_BUTTON_SIZE / 3;
+    private static String describeAudio(GameAudioOutput audio) {
+        if (audio == null) {
+            return "audio through VLC";
+        }
+        return String.format("audio lag %.0f ms  buffered %.0f ms  underruns %d  overruns %d", audio.getLatencyMillis(),
+            audio.getBufferedMillis(), audio.getUnderruns(), audio.getOverruns());
+    }
 
-        int playSize = symbolSize;
-        for (int i = 0; i < playSize; i++) {
-            int lineHeight = (int) ((double) i / playSize * playSize * 2);
-            int lineY = symbolY - lineHeight / 2;
-            context.fill(symbolX - playSize / 2 + i, lineY, symbolX - playSize / 2 + i + 1, lineY + lineHeight, 0xFFFFFFFF);
+    private static String describePresentation(PresentationQueue queue) {
+        if (queue == null) {
+            return "frames shown on arrival";
         }
+        return String.format("a/v %+.1f ms  jitter %.1f ms  queued %d  repeated %d  late %d", queue.getAvOffsetMillis(),
+            queue.getJitterMillis(), queue.getQueuedFrames(), queue.getRepeatedFrames(), queue.getLateFrames());
+    }
+
+    private boolean isMouseOverVideo(int mouseX, int mouseY) {
+        return mouseX >= videoX && mouseX <= videoX + videoWidth &&
+               mouseY >= videoY && mouseY <= videoY + videoHeight;
     }
 
     public boolean handleMouseClick(double mouseX, double mouseY, int button) {
@@ -124,27 +173,35 @@ public class VideoPlayerHud implements HudRenderCallback {
             return false;
         }
 
-        // Check if clicking on play/pause overlay button
-        if (isMouseOverVideo((int) mouseX, (int) mouseY)) {
-            int buttonX = videoX + (videoWidth - PLAY_PAUSE_BUTTON_SIZE) / 2;
-            int buttonY = videoY + (videoHeight - PLAY_PAUSE_BUTTON_SIZE) / 2;
-
-            if (mouseX >= buttonX && mouseX <= buttonX + PLAY_PAUSE_BUTTON_SIZE &&
-                mouseY >= buttonY && mouseY <= buttonY + PLAY_PAUSE_BUTTON_SIZE) {
-                if (videoPlayer != null) {
-                    videoPlayer.togglePlayPause();
-                }
+        // Same layout the overlay was drawn from
+        if (videoPlayer == null || !isMouseOverVideo((int) mouseX, (int) mouseY)) {
+            return false;
+        }
+        controlsLayout.update(videoWidth, videoHeight, videoPlayer.getLengthMillis() > 0);
+        switch (controlsLayout.hitTest(mouseX - videoX, mouseY - videoY)) {
+            case PLAY_PAUSE:
+                videoPlayer.togglePlayPause();
                 return true;
-            }
+            case SEEK_BAR:
+                videoPlayer.seek((long) (controlsLayout.seekFraction(mouseX - videoX) * videoPlayer.getLengthMillis()));
+                return true;
+            default:
+                return false;
         }
-
-        return false;
     }
 
     public void cleanup() {
+        controlOverlay.close();
         if (videoPlayer != null) {
             videoPlayer.cleanup();
             videoPlayer = null;
         }
     }
+
+    // Stops drawing without touching the player, which its owner closes; the caller drops the overlay
+    public void detach() {
+        visible = false;
+        controlOverlay.close();
+        videoPlayer = null;
+    }
 }
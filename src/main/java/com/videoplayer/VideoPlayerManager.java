@@ -0,0 +1,147 @@
+package com.videoplayer;
+
+import net.minecraft.client.MinecraftClient;
+import org.lwjgl.glfw.GLFW;
+import uk.co.caprica.vlcj.factory.MediaPlayerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Owns every VideoPlayer. All players share the one MediaPlayerFactory from the VLC
+// warm-up, each gets an id and its own texture (videoplayer:video_frame_<id>), and their uploads
+// are paced together by one UploadScheduler. The playback profile is shared too:
+// a profile change, picked in game or by auto-tuning, applies to every player.
+// Seek-bar thumbnails come from one background indexer on the same factory.
+public class VideoPlayerManager {
+    public static final int MAX_PLAYERS = Integer.getInteger("videoplayer.maxPlayers", 4);
+
+    private final CompletableFuture<MediaPlayerFactory> factory;
+    private final PlaybackProfiles profiles;
+    private final List<VideoPlayer> players = new CopyOnWriteArrayList<>();
+    private final UploadScheduler uploadScheduler = new UploadScheduler();
+    private final ThumbnailIndexer thumbnails;
+    private volatile VideoPlayer focused;
+
+    public VideoPlayerManager(CompletableFuture<MediaPlayerFactory> factory, PlaybackProfiles profiles, Path cacheDirectory) {
+        this.factory = factory;
+        this.profiles = profiles;
+        this.thumbnails = ThumbnailIndexer.isEnabled() ? new ThumbnailIndexer(factory, cacheDirectory.resolve("thumbnails")) : null;
+        profiles.addListener(profile -> {
+            for (VideoPlayer player : players) {
+                player.setProfile(profile, true);
+            }
+        });
+    }
+
+    // Returns null once MAX_PLAYERS are open
+    public synchronized VideoPlayer createPlayer() {
+        if (players.size() >= MAX_PLAYERS) {
+            VideoPlayerMod.LOGGER.warn("Not opening another video player, {} are already open", players.size());
+            return null;
+        }
+        VideoPlayer player = new VideoPlayer(factory, freeId());
+        player.setProfile(profiles.getActive(), false);
+        players.add(player);
+        if (focused == null) {
+            focused = player;
+        }
+        return player;
+    }
+
+    // Render thread: the player's texture is released with it
+    public synchronized void closePlayer(VideoPlayer player) {
+        if (players.remove(player)) {
+            player.cleanup();
+            if (focused == player) {
+                focused = players.isEmpty() ? null : players.get(0);
+            }
+        }
+    }
+
+    public List<VideoPlayer> getPlayers() {
+        return new ArrayList<>(players);
+    }
+
+    // Null when no open player has that id
+    public VideoPlayer getPlayer(int id) {
+        for (VideoPlayer player : players) {
+            if (player.getId() == id) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    // Lowest id not in use: closing a window never renumbers the others, and the
+    // same windows opened in the same order get the same ids after a restart
+    private int freeId() {
+        int id = 0;
+        while (getPlayer(id) != null) {
+            id++;
+        }
+        return id;
+    }
+
+    public VideoPlayer getFocused() {
+        return focused;
+    }
+
+    public void setFocused(VideoPlayer player) {
+        focused = player;
+    }
+
+    public PlaybackProfiles getProfiles() {
+        return profiles;
+    }
+
+    // Null when thumbnails are disabled
+    public ThumbnailIndexer getThumbnails() {
+        return thumbnails;
+    }
+
+    public UploadScheduler getUploadScheduler() {
+        return uploadScheduler;
+    }
+
+    // Upload stage for all players, once per render frame from GameRendererMixin
+    public void onRenderFrame() {
+        if (players.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+
+        // Budget is the game's own frame cap; unlimited falls back to 60 FPS
+        int maxFps = MinecraftClient.getInstance().options.getMaxFps().getValue();
+        long frameBudgetNanos = 1_000_000_000L / (maxFps > 0 && maxFps < 260 ? maxFps : 60);
+
+        // Nothing is drawn while minimized, however the HUD reports it
+        long window = MinecraftClient.getInstance().getWindow().getHandle();
+        boolean minimized = GLFW.glfwGetWindowAttrib(window, GLFW.GLFW_ICONIFIED) == GLFW.GLFW_TRUE;
+
+        for (VideoPlayer player : players) {
+            player.updateVisibility(now, minimized);
+            player.updateAutoTune(now, profiles);
+            player.beginRenderFrame(now, frameBudgetNanos);
+        }
+        uploadScheduler.runFrame(players, focused, now, frameBudgetNanos);
+        for (VideoPlayer player : players) {
+            player.endRenderFrame(now);
+        }
+    }
+
+    // On client shutdown; the shared factory goes last, once nothing uses it
+    public synchronized void close() {
+        for (VideoPlayer player : players) {
+            player.cleanup();
+        }
+        players.clear();
+        focused = null;
+        if (thumbnails != null) {
+            thumbnails.close();
+        }
+        factory.thenAccept(MediaPlayerFactory::release);
+    }
+}
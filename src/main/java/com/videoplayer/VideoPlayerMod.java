@@ -1,10 +1,14 @@
 package com.videoplayer;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
 import net.fabricmc.fabric.api.event.client.player.ClientPlayerBlockBreakEvents;
+import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
@@ -12,26 +16,72 @@ import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class VideoPlayerMod implements ClientModInitializer {
     public static final String MOD_ID = "videoplayer";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
     private static KeyBinding openVideoPlayerKey;
     private static KeyBinding toggleControlsKey;
+    private static KeyBinding toggleMetricsKey;
+    private static KeyBinding newWindowKey;
+    private static boolean metricsVisible = false;
     private static VideoPlayerScreen currentScreen = null;
-    private static VideoPlayerHud hudOverlay = null;
-    private static VideoPlayer sharedVideoPlayer = null;
+    private static final List<VideoPlayerHud> hudOverlays = new ArrayList<>();
+    private static VideoPlayerManager playerManager = null;
+    // Opened at startup and never closed; windows from the new-window key can be
+    private static VideoPlayer primaryPlayer = null;
+    private static StreamResolver streamResolver = null;
+    private static PlaylistQueue playlist = null;
+    private static WorldScreenManager worldScreens = null;
 
     @Override
     public void onInitializeClient() {
         LOGGER.info("Initializing Video Player PiP Mod");
 
-        // Initialize shared video player
-        sharedVideoPlayer = new VideoPlayer();
+        // Resolved stream URLs are cached across sessions; resolver tools are found in the background
+        streamResolver = new StreamResolver(FabricLoader.getInstance().getConfigDir().resolve(MOD_ID));
+        if (MediaCacheProxy.isEnabled()) {
+            // VLC fetches resolved streams through a local proxy that keeps what it downloaded on disk
+            streamResolver.setMediaProxy(new MediaCacheProxy(FabricLoader.getInstance().getGameDir().resolve("videoplayer-cache")));
+        }
+        // Decoding and caching settings; the startup profile also configures the factory
+        PlaybackProfiles profiles = new PlaybackProfiles(FabricLoader.getInstance().getConfigDir().resolve(MOD_ID).resolve("profiles.json"));
+
+        // VLC loads in the background; players become usable when it is ready
+        long start = System.nanoTime();
+        playerManager = new VideoPlayerManager(VlcBootstrap.start(FabricLoader.getInstance().getConfigDir().resolve(MOD_ID),
+            profiles.getActive().factoryOptions()), profiles, FabricLoader.getInstance().getGameDir().resolve("videoplayer-cache"));
+        LOGGER.info("Scheduled VLC warm-up in {} ms", (System.nanoTime() - start) / 1_000_000);
+
+        // Stops the playlist's preparation thread, releases the players, the thumbnail
+        // indexer and the shared factory, then stops background resolving and the proxy's server thread
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            if (playlist != null) {
+                playlist.close();
+            }
+            playerManager.close();
+            streamResolver.close();
+        });
+
+        // Initialize the first player and its HUD overlay; the playlist plays on it
+        primaryPlayer = playerManager.createPlayer();
+        playlist = new PlaylistQueue(primaryPlayer, url -> streamResolver.resolve(url, StreamResolver.DEFAULT_FORMAT));
+        addHudOverlay(primaryPlayer);
 
-        // Initialize HUD overlay with shared player
-        hudOverlay = new VideoPlayerHud(sharedVideoPlayer);
-        HudRenderCallback.EVENT.register(hudOverlay);
+        // One callback draws every window's overlay in order, so closed windows leave nothing registered
+        HudRenderCallback.EVENT.register((drawContext, tickCounter) -> {
+            for (int i = 0; i < hudOverlays.size(); i++) {
+                hudOverlays.get(i).onHudRender(drawContext, tickCounter);
+            }
+        });
+
+        // In-world screens (/videoscreen) draw the same player textures as the overlays
+        worldScreens = new WorldScreenManager(FabricLoader.getInstance().getConfigDir().resolve(MOD_ID).resolve("world-screens.json"));
+        WorldRenderEvents.AFTER_ENTITIES.register(new WorldScreenRenderer(worldScreens));
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> worldScreens.registerCommands(dispatcher));
 
         // Register keybindings
         openVideoPlayerKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
@@ -48,26 +98,48 @@ public class VideoPlayerMod implements ClientModInitializer {
             "category.videoplayer"
         ));
 
+        toggleMetricsKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+            "key.videoplayer.toggleMetrics",
+            InputUtil.Type.KEYSYM,
+            GLFW.GLFW_KEY_F7,
+            "category.videoplayer"
+        ));
+
+        newWindowKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+            "key.videoplayer.newWindow",
+            InputUtil.Type.KEYSYM,
+            GLFW.GLFW_KEY_N,
+            "category.videoplayer"
+        ));
+
         // Register tick event to check for keybind press
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
-            // Handle mouse clicks on HUD overlay
-            if (hudOverlay != null && hudOverlay.isVisible() && client.currentScreen != null) {
-                // When inventory or any screen is open, check for mouse clicks on the overlay
-                if (client.mouse.wasLeftButtonClicked()) {
-                    double mouseX = client.mouse.getX() * client.getWindow().getScaledWidth() / client.getWindow().getWidth();
-                    double mouseY = client.mouse.getY() * client.getWindow().getScaledHeight() / client.getWindow().getHeight();
-
-                    if (hudOverlay.handleMouseClick(mouseX, mouseY, 0)) {
-                        LOGGER.info("Clicked play/pause button on HUD overlay");
+            // Handle mouse clicks on HUD overlays
+            if (client.currentScreen != null && client.mouse.wasLeftButtonClicked()) {
+                // When inventory or any screen is open, check for mouse clicks on the overlays
+                double mouseX = client.mouse.getX() * client.getWindow().getScaledWidth() / client.getWindow().getWidth();
+                double mouseY = client.mouse.getY() * client.getWindow().getScaledHeight() / client.getWindow().getHeight();
+
+                // Topmost (last drawn) overlay first
+                for (int i = hudOverlays.size() - 1; i >= 0; i--) {
+                    VideoPlayerHud overlay = hudOverlays.get(i);
+                    if (overlay.isVisible() && overlay.handleMouseClick(mouseX, mouseY, 0)) {
+                        playerManager.setFocused(overlay.getVideoPlayer());
+                        LOGGER.info("Clicked a control on HUD overlay");
+                        break;
                     }
                 }
             }
 
+            // V and C act on the focused player's overlay
+            VideoPlayerHud hudOverlay = getHudOverlay();
+
             // Handle open/close video player
             while (openVideoPlayerKey.wasPressed()) {
                 if (client.currentScreen instanceof VideoPlayerScreen) {
                     // Sync position/size from screen to HUD before switching
                     VideoPlayerScreen screen = (VideoPlayerScreen) client.currentScreen;
+                    hudOverlay = getHudOverlay(screen.getVideoPlayer());
                     hudOverlay.setPosition(screen.getVideoX(), screen.getVideoY());
                     hudOverlay.setSize(screen.getVideoWidth(), screen.getVideoHeight());
 
@@ -83,7 +155,7 @@ public class VideoPlayerMod implements ClientModInitializer {
                 } else if (client.currentScreen == null) {
                     // Open controls screen
                     LOGGER.info("Opening Video Player GUI");
-                    currentScreen = new VideoPlayerScreen(sharedVideoPlayer);
+                    currentScreen = new VideoPlayerScreen(hudOverlay.getVideoPlayer());
                     client.setScreen(currentScreen);
                 }
             }
@@ -93,16 +165,91 @@ public class VideoPlayerMod implements ClientModInitializer {
                 if (hudOverlay.isVisible()) {
                     // Switch from HUD mode to controls screen
                     hudOverlay.setVisible(false);
-                    currentScreen = new VideoPlayerScreen(sharedVideoPlayer);
+                    currentScreen = new VideoPlayerScreen(hudOverlay.getVideoPlayer());
                     client.setScreen(currentScreen);
                     LOGGER.info("Toggling to controls view");
                 }
             }
+
+            // Handle new window (N key - another player next to the existing ones)
+            while (newWindowKey.wasPressed()) {
+                if (client.currentScreen == null) {
+                    VideoPlayer player = playerManager.createPlayer();
+                    if (player != null) {
+                        VideoPlayerHud overlay = addHudOverlay(player);
+                        overlay.setPosition(overlay.getX() + 24 * (hudOverlays.size() - 1), overlay.getY() + 24 * (hudOverlays.size() - 1));
+                        playerManager.setFocused(player);
+                        currentScreen = new VideoPlayerScreen(player);
+                        client.setScreen(currentScreen);
+                        LOGGER.info("Opened video player window {}", hudOverlays.size());
+                    }
+                }
+            }
+
+            // Handle pipeline stats overlay (F7)
+            while (toggleMetricsKey.wasPressed()) {
+                metricsVisible = !metricsVisible;
+            }
         });
 
         LOGGER.info("Video Player PiP Mod initialized successfully");
     }
 
+    // Called from GameRendererMixin at the start of every render frame
+    public static void onRenderFrame() {
+        if (playerManager != null) {
+            playerManager.onRenderFrame();
+        }
+    }
+
+    private static VideoPlayerHud addHudOverlay(VideoPlayer player) {
+        VideoPlayerHud overlay = new VideoPlayerHud(player);
+        hudOverlays.add(overlay);
+        return overlay;
+    }
+
+    public static boolean isPrimary(VideoPlayer player) {
+        return player != null && player == primaryPlayer;
+    }
+
+    // Render thread: closes a window opened with the new-window key, freeing its slot
+    public static void closeWindow(VideoPlayer player) {
+        if (player == null || isPrimary(player)) {
+            return;
+        }
+        VideoPlayerHud overlay = getHudOverlay(player);
+        if (overlay != null) {
+            overlay.detach();
+            hudOverlays.remove(overlay);
+        }
+        if (currentScreen != null && currentScreen.getVideoPlayer() == player) {
+            MinecraftClient.getInstance().setScreen(null);
+            currentScreen = null;
+        }
+        playerManager.closePlayer(player);
+        LOGGER.info("Closed video player window, {} left", hudOverlays.size());
+    }
+
+    public static VideoPlayerManager getPlayerManager() {
+        return playerManager;
+    }
+
+    public static PlaylistQueue getPlaylist() {
+        return playlist;
+    }
+
+    public static WorldScreenManager getWorldScreens() {
+        return worldScreens;
+    }
+
+    public static StreamResolver getStreamResolver() {
+        return streamResolver;
+    }
+
+    public static boolean isMetricsVisible() {
+        return metricsVisible;
+    }
+
     public static VideoPlayerScreen getCurrentScreen() {
         return currentScreen;
     }
@@ -111,7 +258,18 @@ public class VideoPlayerMod implements ClientModInitializer {
         currentScreen = screen;
     }
 
+    // Overlay of the focused player
     public static VideoPlayerHud getHudOverlay() {
-        return hudOverlay;
+        VideoPlayerHud overlay = getHudOverlay(playerManager != null ? playerManager.getFocused() : null);
+        return overlay != null || hudOverlays.isEmpty() ? overlay : hudOverlays.get(0);
+    }
+
+    public static VideoPlayerHud getHudOverlay(VideoPlayer player) {
+        for (VideoPlayerHud overlay : hudOverlays) {
+            if (overlay.getVideoPlayer() == player) {
+                return overlay;
+            }
+        }
+        return null;
     }
 }
@@ -10,9 +10,8 @@ import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.util.tinyfd.TinyFileDialogs;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.nio.file.Path;
 
 public class VideoPlayerScreen extends Screen {
     private VideoPlayer videoPlayer;
@@ -38,10 +37,23 @@ public class VideoPlayerScreen extends Screen {
     private int resizeStartVideoY;
     private double aspectRatio = 16.0 / 9.0; // Default aspect ratio
 
+    // Seek bar state: while scrubbing only the preview follows the mouse, the seek happens on release
+    private boolean isScrubbing = false;
+    private long scrubTimeMillis;
+
+    private final SubtitleOverlay subtitleOverlay = new SubtitleOverlay();
+    // Seek bar geometry, shared with the HUD overlay
+    private final HudControlsLayout seekLayout = new HudControlsLayout();
+
     // UI elements
     private ButtonWidget browseButton;
     private ButtonWidget playPauseButton;
     private ButtonWidget loadUrlButton;
+    private ButtonWidget queueButton;
+    private ButtonWidget nextButton;
+    private ButtonWidget profileButton;
+    private ButtonWidget subtitlesButton;
+    private ButtonWidget closeWindowButton;
     private TextFieldWidget urlTextField;
     private String currentVideoPath = null;
 
@@ -62,7 +74,7 @@ public class VideoPlayerScreen extends Screen {
         this.videoPlayer = videoPlayer;
 
         // Sync state from HUD if available
-        VideoPlayerHud hud = VideoPlayerMod.getHudOverlay();
+        VideoPlayerHud hud = VideoPlayerMod.getHudOverlay(videoPlayer);
         if (hud != null) {
             this.videoX = hud.getX();
             this.videoY = hud.getY();
@@ -71,6 +83,13 @@ public class VideoPlayerScreen extends Screen {
         }
 
         VideoPlayerMod.setCurrentScreen(this);
+        if (VideoPlayerMod.getPlayerManager() != null) {
+            VideoPlayerMod.getPlayerManager().setFocused(videoPlayer);
+        }
+    }
+
+    public VideoPlayer getVideoPlayer() {
+        return videoPlayer;
     }
 
     public int getVideoX() { return videoX; }
@@ -103,6 +122,39 @@ public class VideoPlayerScreen extends Screen {
         }).dimensions(videoX + buttonWidth + 10, controlsY, buttonWidth, buttonHeight).build();
         addDrawableChild(playPauseButton);
 
+        // Add next button (skips to the next playlist entry); the playlist only plays on the first window
+        if (VideoPlayerMod.isPrimary(videoPlayer)) {
+            nextButton = ButtonWidget.builder(Text.literal("Next"), button -> {
+                PlaylistQueue playlist = VideoPlayerMod.getPlaylist();
+                if (playlist != null) {
+                    playlist.next();
+                }
+            }).dimensions(videoX + 175, controlsY, buttonWidth, buttonHeight).build();
+            addDrawableChild(nextButton);
+        }
+
+        // Add playback profile button (cycles auto and the profiles from profiles.json)
+        profileButton = ButtonWidget.builder(profileLabel(), button -> {
+            VideoPlayerMod.getPlayerManager().getProfiles().selectNext();
+            button.setMessage(profileLabel());
+        }).dimensions(videoX + 260, controlsY, 130, buttonHeight).build();
+        addDrawableChild(profileButton);
+
+        // Add subtitles button (.srt/.vtt for the current video; video.srt next to video.mp4 loads by itself)
+        subtitlesButton = ButtonWidget.builder(Text.literal("Subtitles..."), button -> {
+            openSubtitlePicker();
+        }).dimensions(videoX + 395, controlsY, buttonWidth, buttonHeight).build();
+        addDrawableChild(subtitlesButton);
+
+        // Windows opened with the new-window key can be closed for good; the first one stays
+        if (!VideoPlayerMod.isPrimary(videoPlayer)) {
+            closeWindowButton = ButtonWidget.builder(Text.literal("Close Window"), button -> {
+                VideoPlayerMod.closeWindow(videoPlayer);
+                videoPlayer = null;
+            }).dimensions(videoX + 480, controlsY, buttonWidth, buttonHeight).build();
+            addDrawableChild(closeWindowButton);
+        }
+
         // Add URL text field
         int urlFieldWidth = 300;
         urlTextField = new TextFieldWidget(textRenderer, videoX + 5, controlsY + 25, urlFieldWidth, buttonHeight, Text.literal("YouTube URL"));
@@ -115,6 +167,22 @@ public class VideoPlayerScreen extends Screen {
             loadYouTubeUrl(urlTextField.getText());
         }).dimensions(videoX + urlFieldWidth + 10, controlsY + 25, buttonWidth, buttonHeight).build();
         addDrawableChild(loadUrlButton);
+
+        // Add Queue button (URL or file path; plays right away if the queue is empty), first window only
+        if (VideoPlayerMod.isPrimary(videoPlayer)) {
+            queueButton = ButtonWidget.builder(Text.literal("Queue"), button -> {
+                PlaylistQueue playlist = VideoPlayerMod.getPlaylist();
+                if (playlist != null) {
+                    playlist.add(urlTextField.getText());
+                    urlTextField.setText("");
+                }
+            }).dimensions(videoX + urlFieldWidth + buttonWidth + 15, controlsY + 25, buttonWidth, buttonHeight).build();
+            addDrawableChild(queueButton);
+        }
+    }
+
+    private static Text profileLabel() {
+        return Text.literal("Profile: " + VideoPlayerMod.getPlayerManager().getProfiles().describe());
     }
 
     private void openFilePicker() {
@@ -170,6 +238,33 @@ public class VideoPlayerScreen extends Screen {
         }, "FilePicker-Thread").start();
     }
 
+    private void openSubtitlePicker() {
+        new Thread(() -> {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                PointerBuffer filters = stack.mallocPointer(2);
+                filters.put(stack.UTF8("*.srt"));
+                filters.put(stack.UTF8("*.vtt"));
+                filters.flip();
+
+                String defaultPath = currentVideoPath != null ? currentVideoPath : System.getProperty("user.home") + "/Downloads";
+                String selectedPath = TinyFileDialogs.tinyfd_openFileDialog(
+                    "Select Subtitle File",
+                    defaultPath,
+                    filters,
+                    "Subtitles (*.srt, *.vtt)",
+                    false
+                );
+
+                if (selectedPath != null && videoPlayer != null) {
+                    // Parsed on the subtitle loader thread
+                    videoPlayer.loadSubtitles(Path.of(selectedPath));
+                }
+            } catch (Exception e) {
+                VideoPlayerMod.LOGGER.error("Error opening subtitle picker", e);
+            }
+        }, "FilePicker-Thread").start();
+    }
+
     private void loadYouTubeUrl(String url) {
         if (url == null || url.trim().isEmpty()) {
             VideoPlayerMod.LOGGER.warn("Empty URL provided");
@@ -180,42 +275,14 @@ public class VideoPlayerScreen extends Screen {
             try {
                 VideoPlayerMod.LOGGER.info("Loading YouTube URL: {}", url);
 
-                // Try different yt-dlp paths
-                String streamUrl = null;
-
-                // Try Homebrew paths first (Apple Silicon and Intel)
-                streamUrl = extractStreamUrl(url, "/opt/homebrew/bin/yt-dlp");
-                if (streamUrl == null) {
-                    streamUrl = extractStreamUrl(url, "/usr/local/bin/yt-dlp");
-                }
-                // Try system PATH
-                if (streamUrl == null) {
-                    streamUrl = extractStreamUrl(url, "yt-dlp");
-                }
-                // Fallback to youtube-dl
-                if (streamUrl == null) {
-                    VideoPlayerMod.LOGGER.info("yt-dlp not found, trying youtube-dl...");
-                    streamUrl = extractStreamUrl(url, "/opt/homebrew/bin/youtube-dl");
-                }
-                if (streamUrl == null) {
-                    streamUrl = extractStreamUrl(url, "/usr/local/bin/youtube-dl");
-                }
-                if (streamUrl == null) {
-                    streamUrl = extractStreamUrl(url, "youtube-dl");
-                }
-
+                String streamUrl = VideoPlayerMod.getStreamResolver().resolve(url, StreamResolver.DEFAULT_FORMAT);
                 if (streamUrl != null) {
-                    String finalUrl = streamUrl;
                     client.execute(() -> {
                         if (videoPlayer != null) {
-                            videoPlayer.loadVideo(finalUrl);
+                            videoPlayer.loadVideo(streamUrl);
                             VideoPlayerMod.LOGGER.info("Loaded stream from YouTube");
                         }
                     });
-                } else {
-                    VideoPlayerMod.LOGGER.error("Failed to extract stream URL. Make sure yt-dlp is installed.");
-                    VideoPlayerMod.LOGGER.error("Install with: brew install yt-dlp");
-                    VideoPlayerMod.LOGGER.error("After installing, run: which yt-dlp");
                 }
             } catch (Exception e) {
                 VideoPlayerMod.LOGGER.error("Error loading YouTube URL", e);
@@ -223,100 +290,6 @@ public class VideoPlayerScreen extends Screen {
         }, "YouTube-Loader-Thread").start();
     }
 
-    private String extractStreamUrl(String youtubeUrl, String command) {
-        // First try with browser cookies (for restricted videos)
-        String streamUrl = tryExtractWithCookies(youtubeUrl, command);
-        if (streamUrl != null) {
-            return streamUrl;
-        }
-
-        // Fallback to no cookies
-        return tryExtractNoCookies(youtubeUrl, command);
-    }
-
-    private String tryExtractWithCookies(String youtubeUrl, String command) {
-        try {
-            VideoPlayerMod.LOGGER.info("Trying {} with browser cookies", command);
-
-            // Try different browsers in order of likelihood
-            String[] browsers = {"chrome", "firefox", "safari", "edge"};
-
-            for (String browser : browsers) {
-                ProcessBuilder pb = new ProcessBuilder(
-                    command,
-                    "--cookies-from-browser", browser,
-                    "-f", "best[ext=mp4]/best",
-                    "-g",
-                    youtubeUrl
-                );
-
-                Process process = pb.start();
-
-                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                String streamUrl = reader.readLine();
-
-                BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-                String errorLine;
-                StringBuilder errors = new StringBuilder();
-                while ((errorLine = errorReader.readLine()) != null) {
-                    errors.append(errorLine).append("\n");
-                }
-
-                int exitCode = process.waitFor();
-
-                if (exitCode == 0 && streamUrl != null && !streamUrl.isEmpty()) {
-                    VideoPlayerMod.LOGGER.info("Successfully extracted stream URL with {} using {} cookies", command, browser);
-                    return streamUrl;
-                } else {
-                    VideoPlayerMod.LOGGER.debug("Failed with {} cookies: {}", browser, errors.toString());
-                }
-            }
-        } catch (Exception e) {
-            VideoPlayerMod.LOGGER.debug("Exception trying with cookies: {}", e.getMessage());
-        }
-        return null;
-    }
-
-    private String tryExtractNoCookies(String youtubeUrl, String command) {
-        try {
-            VideoPlayerMod.LOGGER.info("Trying {} without cookies", command);
-
-            ProcessBuilder pb = new ProcessBuilder(
-                command,
-                "-f", "best[ext=mp4]/best",
-                "-g",
-                youtubeUrl
-            );
-
-            Process process = pb.start();
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String streamUrl = reader.readLine();
-
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            String errorLine;
-            StringBuilder errors = new StringBuilder();
-            while ((errorLine = errorReader.readLine()) != null) {
-                errors.append(errorLine).append("\n");
-            }
-
-            int exitCode = process.waitFor();
-
-            if (exitCode == 0 && streamUrl != null && !streamUrl.isEmpty()) {
-                VideoPlayerMod.LOGGER.info("Successfully extracted stream URL with {}", command);
-                return streamUrl;
-            } else {
-                if (errors.length() > 0) {
-                    VideoPlayerMod.LOGGER.error("yt-dlp error output: {}", errors.toString());
-                }
-                VideoPlayerMod.LOGGER.warn("Command {} failed with exit code: {}", command, exitCode);
-            }
-        } catch (Exception e) {
-            VideoPlayerMod.LOGGER.warn("Exception running {}: {}", command, e.getMessage());
-        }
-        return null;
-    }
-
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
         // Update UI element positions if video window moved
@@ -334,6 +307,29 @@ public class VideoPlayerScreen extends Screen {
         if (loadUrlButton != null) {
             loadUrlButton.setPosition(videoX + 310, controlsY + 25);
         }
+        if (nextButton != null) {
+            nextButton.setPosition(videoX + 175, controlsY);
+        }
+        if (queueButton != null) {
+            queueButton.setPosition(videoX + 395, controlsY + 25);
+        }
+        if (profileButton != null) {
+            profileButton.setPosition(videoX + 260, controlsY);
+            // Auto-tuning can step down while the screen is open
+            profileButton.setMessage(profileLabel());
+        }
+        if (subtitlesButton != null) {
+            subtitlesButton.setPosition(videoX + 395, controlsY);
+        }
+        if (closeWindowButton != null) {
+            closeWindowButton.setPosition(videoX + 480, controlsY);
+        }
+
+        if (videoPlayer != null) {
+            // Decode resolution follows the window size, including while resizing
+            double scale = client.getWindow().getScaleFactor();
+            videoPlayer.reportViewSize((int) (videoWidth * scale), (int) (videoHeight * scale));
+        }
 
         if (videoPlayer != null && videoPlayer.hasTexture()) {
             // Draw video frame
@@ -349,6 +345,9 @@ public class VideoPlayerScreen extends Screen {
             // Draw border
             context.drawBorder(videoX - 1, videoY - 1, videoWidth + 2, videoHeight + 2, 0xFFFFFFFF);
 
+            subtitleOverlay.draw(context, textRenderer, videoPlayer, videoX, videoY, videoWidth, videoHeight);
+            drawSeekBar(context, mouseX, mouseY);
+
             // Draw resize handles
             drawResizeHandles(context, mouseX, mouseY);
         } else {
@@ -356,7 +355,14 @@ public class VideoPlayerScreen extends Screen {
             context.fill(videoX, videoY, videoX + videoWidth, videoY + videoHeight, 0x80000000);
             context.drawBorder(videoX - 1, videoY - 1, videoWidth + 2, videoHeight + 2, 0xFFFFFFFF);
 
-            Text placeholderText = Text.literal("Click 'Browse...' to select a video");
+            Text placeholderText;
+            if (videoPlayer != null && videoPlayer.isFailed()) {
+                placeholderText = Text.literal("VLC could not be loaded");
+            } else if (videoPlayer != null && !videoPlayer.isReady()) {
+                placeholderText = Text.literal("Starting VLC...");
+            } else {
+                placeholderText = Text.literal("Click 'Browse...' to select a video");
+            }
             int textX = videoX + (videoWidth - textRenderer.getWidth(placeholderText)) / 2;
             int textY = videoY + (videoHeight - textRenderer.fontHeight) / 2;
             context.drawText(textRenderer, placeholderText, textX, textY, 0xFFFFFFFF, true);
@@ -365,9 +371,85 @@ public class VideoPlayerScreen extends Screen {
             drawResizeHandles(context, mouseX, mouseY);
         }
 
+        if (videoPlayer != null && VideoPlayerMod.isMetricsVisible()) {
+            VideoPlayerHud.drawMetrics(context, textRenderer, videoPlayer, videoX + 2, videoY + 2);
+        }
+
         super.render(context, mouseX, mouseY, delta);
     }
 
+    private void drawSeekBar(DrawContext context, int mouseX, int mouseY) {
+        long length = videoPlayer.getLengthMillis();
+        if (!updateSeekLayout()) {
+            return;
+        }
+        int barX = videoX + seekLayout.seekBarX();
+        int barY = videoY + seekLayout.seekBarY();
+        int barWidth = seekLayout.seekBarWidth();
+        int barHeight = HudControlsLayout.SEEK_BAR_HEIGHT;
+        long time = isScrubbing ? scrubTimeMillis : videoPlayer.getTimeMillis();
+        int played = (int) (barWidth * Math.min(1.0, (double) time / length));
+
+        context.fill(barX, barY, barX + barWidth, barY + barHeight, 0x80000000);
+        context.fill(barX, barY, barX + played, barY + barHeight, 0xFFFF4040);
+        context.fill(barX + played - 1, barY - 1, barX + played + 1, barY + barHeight + 1, 0xFFFFFFFF);
+
+        if (!isScrubbing && !isOnSeekBar(mouseX, mouseY)) {
+            return;
+        }
+        long previewTime = isScrubbing ? scrubTimeMillis : seekTimeAt(mouseX);
+        Text label = Text.literal(formatTime(previewTime) + " / " + formatTime(length));
+        int labelWidth = textRenderer.getWidth(label);
+
+        // The preview is one cell of a texture that is already uploaded; nothing is decoded here
+        ThumbnailIndexer thumbnails = VideoPlayerMod.getPlayerManager().getThumbnails();
+        ThumbnailSheet sheet = thumbnails != null ? thumbnails.getSheet(videoPlayer.getCurrentMrl()) : null;
+        int boxWidth = Math.max(labelWidth + 4, sheet != null ? sheet.getThumbWidth() + 2 : 0);
+        int boxHeight = textRenderer.fontHeight + 3 + (sheet != null ? sheet.getThumbHeight() + 1 : 0);
+        int boxX = Math.max(videoX, Math.min(mouseX - boxWidth / 2, videoX + videoWidth - boxWidth));
+        int boxY = Math.max(videoY, barY - HudControlsLayout.SEEK_BAR_SLOP - boxHeight);
+
+        context.fill(boxX, boxY, boxX + boxWidth, boxY + boxHeight, 0xC0000000);
+        int textY = boxY + 2;
+        if (sheet != null) {
+            int cell = sheet.cellAt(previewTime);
+            context.drawTexture(
+                RenderLayer::getGuiTextured,
+                sheet.getTexture(),
+                boxX + 1, boxY + 1,
+                sheet.cellU(cell), sheet.cellV(cell),
+                sheet.getThumbWidth(), sheet.getThumbHeight(),
+                sheet.getSheetWidth(), sheet.getSheetHeight()
+            );
+            textY += sheet.getThumbHeight() + 1;
+        }
+        context.drawText(textRenderer, label, boxX + (boxWidth - labelWidth) / 2, textY, 0xFFFFFFFF, true);
+    }
+
+    // Brings the layout up to the current window size; false if there is no seek bar to show
+    private boolean updateSeekLayout() {
+        boolean hasSeekBar = videoPlayer != null && videoPlayer.hasTexture() && videoPlayer.getLengthMillis() > 0;
+        seekLayout.update(videoWidth, videoHeight, hasSeekBar);
+        return hasSeekBar;
+    }
+
+    private boolean isOnSeekBar(double mouseX, double mouseY) {
+        return updateSeekLayout() &&
+               seekLayout.hitTest(mouseX - videoX, mouseY - videoY) == HudControlsLayout.Control.SEEK_BAR;
+    }
+
+    private long seekTimeAt(double mouseX) {
+        return (long) (seekLayout.seekFraction(mouseX - videoX) * videoPlayer.getLengthMillis());
+    }
+
+    private static String formatTime(long millis) {
+        long seconds = millis / 1000;
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
     private void drawResizeHandles(DrawContext context, int mouseX, int mouseY) {
         ResizeHandle hovered = getResizeHandleAt(mouseX, mouseY);
 
@@ -418,6 +500,13 @@ public class VideoPlayerScreen extends Screen {
                 return true;
             }
 
+            // The seek bar sits inside the video area, so it goes before dragging
+            if (isOnSeekBar(mouseX, mouseY)) {
+                isScrubbing = true;
+                scrubTimeMillis = seekTimeAt(mouseX);
+                return true;
+            }
+
             // Check if clicking inside video area for dragging
             if (mouseX >= videoX && mouseX <= videoX + videoWidth &&
                 mouseY >= videoY && mouseY <= videoY + videoHeight) {
@@ -433,6 +522,10 @@ public class VideoPlayerScreen extends Screen {
     @Override
     public boolean mouseReleased(double mouseX, double mouseY, int button) {
         if (button == 0) {
+            if (isScrubbing) {
+                videoPlayer.seek(seekTimeAt(mouseX));
+                isScrubbing = false;
+            }
             isDragging = false;
             isResizing = false;
             activeHandle = ResizeHandle.NONE;
@@ -442,7 +535,10 @@ public class VideoPlayerScreen extends Screen {
 
     @Override
     public boolean mouseDragged(double mouseX, double mouseY, int button, double deltaX, double deltaY) {
-        if (isResizing) {
+        if (isScrubbing) {
+            scrubTimeMillis = seekTimeAt(mouseX);
+            return true;
+        } else if (isResizing) {
             int dx = (int) mouseX - resizeStartX;
             int dy = (int) mouseY - resizeStartY;
 
@@ -523,7 +619,7 @@ public class VideoPlayerScreen extends Screen {
         // ESC to close and switch to HUD mode
         if (keyCode == 256) { // ESC key
             // Sync position to HUD
-            VideoPlayerHud hud = VideoPlayerMod.getHudOverlay();
+            VideoPlayerHud hud = VideoPlayerMod.getHudOverlay(videoPlayer);
             if (hud != null) {
                 hud.setPosition(videoX, videoY);
                 hud.setSize(videoWidth, videoHeight);
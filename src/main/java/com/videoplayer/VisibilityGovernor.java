@@ -0,0 +1,170 @@
+package com.videoplayer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Objects;
+
+// Stops video work for a player nobody is looking at. Once no view has drawn the
+// video for a grace period (HUD hidden, screen closed, window minimized) the player
+// disables its video track, so VLC stops decoding and converting frames while audio
+// keeps playing; when the decoder has gone quiet the frame buffers are released.
+// Showing the video again re-enables the track and seeks in place, so decoding
+// restarts from a fresh keyframe instead of waiting for the next one.
+public class VisibilityGovernor {
+    public enum Action {
+        NONE,
+        // Disable the video track
+        SUSPEND,
+        // Decoder has stopped producing: free the frame buffers
+        RELEASE_BUFFERS,
+        // Re-enable the video track and seek to the current position
+        RESUME
+    }
+
+    private enum State {
+        ACTIVE,
+        SUSPENDED,
+        RELEASED
+    }
+
+    private static final long GRACE_NANOS = Long.getLong("videoplayer.suspendAfterMs", 1000) * 1_000_000L;
+    // No frame published for this long after suspending means the video output is gone
+    private static final long QUIET_NANOS = 500_000_000L;
+    private static final long CPU_SAMPLE_NANOS = 1_000_000_000L;
+    private static final double SMOOTHING = 0.3;
+
+    private volatile boolean enabled = !"false".equals(System.getProperty("videoplayer.suspendHidden"));
+
+    private State state = State.ACTIVE;
+    private long hiddenSince = -1;
+    private long lastPublishChange;
+    private long lastPublishedFrames = -1;
+    private String mrl;
+
+    private long suspendedSince;
+    private long suspendedNanos;
+
+    // Process CPU in cores, averaged separately over playing-visible and suspended seconds
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private long cpuSampleStart;
+    private long cpuTimeAtSampleStart = -1;
+    private boolean sampleMixed;
+    private State sampleState;
+    private double activeCores = -1;
+    private double suspendedCores = -1;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Called once per render frame with what the player is doing right now
+    public Action update(long now, boolean visible, boolean playing, String currentMrl, long publishedFrames) {
+        if (publishedFrames != lastPublishedFrames) {
+            lastPublishedFrames = publishedFrames;
+            lastPublishChange = now;
+        }
+
+        Action action = decide(now, visible, playing, currentMrl);
+        sampleCpu(now, playing);
+        return action;
+    }
+
+    private Action decide(long now, boolean visible, boolean playing, String currentMrl) {
+        if (!Objects.equals(mrl, currentMrl)) {
+            // New media starts with its video track enabled
+            mrl = currentMrl;
+            leaveSuspended(now);
+            hiddenSince = -1;
+        }
+
+        if (visible || !enabled) {
+            hiddenSince = -1;
+            if (state != State.ACTIVE) {
+                leaveSuspended(now);
+                return Action.RESUME;
+            }
+            return Action.NONE;
+        }
+
+        if (hiddenSince < 0) {
+            hiddenSince = now;
+        }
+        switch (state) {
+            case ACTIVE:
+                if (playing && now - hiddenSince >= GRACE_NANOS) {
+                    state = State.SUSPENDED;
+                    suspendedSince = now;
+                    return Action.SUSPEND;
+                }
+                return Action.NONE;
+            case SUSPENDED:
+                if (now - lastPublishChange >= QUIET_NANOS && now - suspendedSince >= QUIET_NANOS) {
+                    state = State.RELEASED;
+                    return Action.RELEASE_BUFFERS;
+                }
+                return Action.NONE;
+            default:
+                return Action.NONE;
+        }
+    }
+
+    private void leaveSuspended(long now) {
+        if (state != State.ACTIVE) {
+            suspendedNanos += now - suspendedSince;
+            state = State.ACTIVE;
+        }
+    }
+
+    private void sampleCpu(long now, boolean playing) {
+        if (!(os instanceof com.sun.management.OperatingSystemMXBean sunOs)) {
+            return;
+        }
+        State current = playing ? (state == State.ACTIVE ? State.ACTIVE : State.SUSPENDED) : null;
+        if (cpuTimeAtSampleStart < 0) {
+            startSample(now, sunOs, current);
+            return;
+        }
+        if (current != sampleState) {
+            sampleMixed = true;
+        }
+        if (now - cpuSampleStart < CPU_SAMPLE_NANOS) {
+            return;
+        }
+
+        // Only whole seconds spent in one state count, so transitions don't blur the averages
+        double cores = (double) (sunOs.getProcessCpuTime() - cpuTimeAtSampleStart) / (now - cpuSampleStart);
+        if (!sampleMixed && sampleState == State.ACTIVE) {
+            activeCores = activeCores < 0 ? cores : activeCores + (cores - activeCores) * SMOOTHING;
+        } else if (!sampleMixed && sampleState == State.SUSPENDED) {
+            suspendedCores = suspendedCores < 0 ? cores : suspendedCores + (cores - suspendedCores) * SMOOTHING;
+        }
+        startSample(now, sunOs, current);
+    }
+
+    private void startSample(long now, com.sun.management.OperatingSystemMXBean sunOs, State current) {
+        cpuSampleStart = now;
+        cpuTimeAtSampleStart = sunOs.getProcessCpuTime();
+        sampleState = current;
+        sampleMixed = false;
+    }
+
+    public boolean isSuspended() {
+        return state != State.ACTIVE;
+    }
+
+    public long getSuspendedNanos(long now) {
+        return suspendedNanos + (state != State.ACTIVE ? now - suspendedSince : 0);
+    }
+
+    // Process CPU (in % of one core) saved while suspended, or -1 until both states were measured
+    public double getCpuSavedPercent() {
+        if (activeCores < 0 || suspendedCores < 0) {
+            return -1;
+        }
+        return Math.max(0, activeCores - suspendedCores) * 100.0;
+    }
+}
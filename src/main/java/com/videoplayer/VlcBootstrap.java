@@ -0,0 +1,190 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import uk.co.caprica.vlcj.factory.MediaPlayerFactory;
+import uk.co.caprica.vlcj.factory.discovery.NativeDiscovery;
+import uk.co.caprica.vlcj.factory.discovery.strategy.LinuxNativeDiscoveryStrategy;
+import uk.co.caprica.vlcj.factory.discovery.strategy.NativeDiscoveryStrategy;
+import uk.co.caprica.vlcj.factory.discovery.strategy.OsxNativeDiscoveryStrategy;
+import uk.co.caprica.vlcj.factory.discovery.strategy.WindowsNativeDiscoveryStrategy;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Creates the shared MediaPlayerFactory on a background thread at client start, so
+// libvlc discovery and plugin loading never block the game's main thread. The
+// directory libvlc was found in is remembered, and later launches look there first
+// instead of scanning every well-known install location.
+public final class VlcBootstrap {
+    private static final Pattern LIBVLC_NAME = Pattern.compile("libvlc\\.(so(\\.\\d+)*|dylib|dll)");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static CompletableFuture<MediaPlayerFactory> factory;
+
+    // Persisted between launches
+    private static class Record {
+        String libvlcDirectory;
+        long fullDiscoveryMillis;
+    }
+
+    private VlcBootstrap() {
+    }
+
+    // libvlcArgs are the startup playback profile's options
+    public static synchronized CompletableFuture<MediaPlayerFactory> start(Path configDir, String... libvlcArgs) {
+        if (factory == null) {
+            factory = new CompletableFuture<>();
+            Thread thread = new Thread(() -> warmUp(configDir.resolve("vlc.json"), libvlcArgs), "VLC-Warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return factory;
+    }
+
+    // Completes with the factory, or exceptionally if VLC could not be loaded
+    public static synchronized CompletableFuture<MediaPlayerFactory> factory() {
+        if (factory == null) {
+            throw new IllegalStateException("VLC bootstrap not started");
+        }
+        return factory;
+    }
+
+    private static void warmUp(Path recordFile, String[] libvlcArgs) {
+        long start = System.nanoTime();
+        try {
+            Record record = load(recordFile);
+            NativeDiscovery discovery = null;
+            boolean cached = false;
+
+            if (record.libvlcDirectory != null) {
+                NativeDiscovery cachedDiscovery = new NativeDiscovery(new CachedDirectoryStrategy(record.libvlcDirectory));
+                if (cachedDiscovery.discover()) {
+                    discovery = cachedDiscovery;
+                    cached = true;
+                } else {
+                    VideoPlayerMod.LOGGER.info("libvlc no longer in {}, searching again", record.libvlcDirectory);
+                }
+            }
+            if (discovery == null) {
+                discovery = new NativeDiscovery();
+                if (!discovery.discover()) {
+                    throw new IllegalStateException("libvlc not found, is VLC installed?");
+                }
+            }
+            long discoveryMillis = (System.nanoTime() - start) / 1_000_000;
+
+            MediaPlayerFactory mediaPlayerFactory = new MediaPlayerFactory(discovery, libvlcArgs);
+            long totalMillis = (System.nanoTime() - start) / 1_000_000;
+
+            if (cached) {
+                VideoPlayerMod.LOGGER.info("VLC ready in {} ms off the main thread; cached libvlc location took {} ms vs {} ms for a full search",
+                    totalMillis, discoveryMillis, record.fullDiscoveryMillis);
+            } else {
+                VideoPlayerMod.LOGGER.info("VLC ready in {} ms off the main thread; found libvlc in {} after {} ms",
+                    totalMillis, discovery.discoveredPath(), discoveryMillis);
+                record.libvlcDirectory = discovery.discoveredPath();
+                record.fullDiscoveryMillis = discoveryMillis;
+                save(recordFile, record);
+            }
+            warnIfNoPluginCache(discovery.discoveredPath());
+
+            factory.complete(mediaPlayerFactory);
+        } catch (Throwable t) {
+            VideoPlayerMod.LOGGER.error("Failed to initialize VLC", t);
+            factory.completeExceptionally(t);
+        }
+    }
+
+    // Without plugins.dat VLC opens every plugin on each start to build its module list
+    private static void warnIfNoPluginCache(String libvlcDirectory) {
+        if (libvlcDirectory == null) {
+            return;
+        }
+        Path base = Path.of(libvlcDirectory);
+        for (Path plugins : new Path[] {base.resolve("plugins"), base.resolve("vlc/plugins")}) {
+            if (Files.isDirectory(plugins)) {
+                if (!Files.exists(plugins.resolve("plugins.dat"))) {
+                    VideoPlayerMod.LOGGER.info("VLC plugin cache missing in {}; running vlc-cache-gen there speeds up startup", plugins);
+                }
+                return;
+            }
+        }
+    }
+
+    private static Record load(Path file) {
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                Record record = GSON.fromJson(reader, Record.class);
+                if (record != null) {
+                    return record;
+                }
+            } catch (Exception e) {
+                VideoPlayerMod.LOGGER.warn("Ignoring unreadable {}: {}", file, e.getMessage());
+            }
+        }
+        return new Record();
+    }
+
+    private static void save(Path file, Record record) {
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                GSON.toJson(record, writer);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Failed to save VLC location: {}", e.getMessage());
+        }
+    }
+
+    // Looks only in the remembered directory; loading libvlc and setting the plugin
+    // path is left to the platform strategy, which knows the per-OS details
+    private static class CachedDirectoryStrategy implements NativeDiscoveryStrategy {
+        private final String directory;
+        private final NativeDiscoveryStrategy platform;
+
+        CachedDirectoryStrategy(String directory) {
+            this.directory = directory;
+            String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+            if (os.contains("win")) {
+                platform = new WindowsNativeDiscoveryStrategy();
+            } else if (os.contains("mac")) {
+                platform = new OsxNativeDiscoveryStrategy();
+            } else {
+                platform = new LinuxNativeDiscoveryStrategy();
+            }
+        }
+
+        @Override
+        public boolean supported() {
+            return platform.supported() && Files.isDirectory(Path.of(directory));
+        }
+
+        @Override
+        public String discover() {
+            try (Stream<Path> files = Files.list(Path.of(directory))) {
+                boolean found = files.anyMatch(path -> LIBVLC_NAME.matcher(path.getFileName().toString()).matches());
+                return found ? directory : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean onFound(String path) {
+            return platform.onFound(path);
+        }
+
+        @Override
+        public boolean onSetPluginPath(String path) {
+            return platform.onSetPluginPath(path);
+        }
+    }
+}
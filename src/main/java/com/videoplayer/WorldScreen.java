@@ -0,0 +1,113 @@
+package com.videoplayer;
+
+import com.google.gson.annotations.SerializedName;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+
+// A video surface in the world: a width x height block rectangle lying on a block
+// face, showing one of the players. Stored by WorldScreenManager.
+public class WorldScreen {
+    // Pushed out from the block face so the quad never z-fights with it
+    private static final double FACE_OFFSET = 0.01;
+
+    final String world;
+    final String dimension;
+    final int x;
+    final int y;
+    final int z;
+    final String facing;
+    final int width;
+    final int height;
+    // VideoPlayer.getId() of the player shown. Files from before ids stored the index
+    // into the player list, which was the id for windows opened without closing any
+    @SerializedName(value = "playerId", alternate = "playerSlot")
+    final int playerId;
+
+    private transient Vec3d origin;
+    private transient Vec3d right;
+    private transient Vec3d up;
+    private transient Vec3d normal;
+    private transient Box bounds;
+
+    public WorldScreen(String world, String dimension, int x, int y, int z, Direction facing, int width, int height, int playerId) {
+        this.world = world;
+        this.dimension = dimension;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.facing = facing.asString();
+        this.width = width;
+        this.height = height;
+        this.playerId = playerId;
+    }
+
+    // Corner geometry, computed on first use (Gson skips constructors)
+    private void computeGeometry() {
+        if (origin != null) {
+            return;
+        }
+        Direction direction = getFacing();
+        normal = Vec3d.of(direction.getVector());
+        // Right and up as seen by someone looking at the face
+        right = Vec3d.of(direction.rotateYCounterclockwise().getVector());
+        up = new Vec3d(0, 1, 0);
+
+        Vec3d faceCenter = new Vec3d(x + 0.5, y + 0.5, z + 0.5).add(normal.multiply(0.5 + FACE_OFFSET));
+        origin = faceCenter.subtract(right.multiply(0.5)).subtract(up.multiply(0.5));
+        Vec3d opposite = origin.add(right.multiply(width)).add(up.multiply(height));
+        bounds = new Box(origin, opposite).expand(0.05);
+    }
+
+    public Direction getFacing() {
+        Direction direction = Direction.byId(facing);
+        return direction != null && direction.getAxis().isHorizontal() ? direction : Direction.NORTH;
+    }
+
+    // Bottom-left corner as seen from the front
+    public Vec3d getOrigin() {
+        computeGeometry();
+        return origin;
+    }
+
+    public Vec3d getRight() {
+        computeGeometry();
+        return right;
+    }
+
+    public Vec3d getUp() {
+        computeGeometry();
+        return up;
+    }
+
+    public Vec3d getNormal() {
+        computeGeometry();
+        return normal;
+    }
+
+    public Vec3d getCenter() {
+        computeGeometry();
+        return origin.add(right.multiply(width / 2.0)).add(up.multiply(height / 2.0));
+    }
+
+    public Box getBounds() {
+        computeGeometry();
+        return bounds;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public boolean isIn(String world, String dimension) {
+        return this.world.equals(world) && this.dimension.equals(dimension);
+    }
+}
@@ -0,0 +1,167 @@
+package com.videoplayer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.hit.HitResult;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Keeps the in-world video screens, per world and dimension, in a JSON file and
+// provides the /videoscreen client command to place and remove them.
+public class WorldScreenManager {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final int MAX_SIZE = 32;
+
+    private final Path file;
+    private final List<WorldScreen> screens = new CopyOnWriteArrayList<>();
+
+    public WorldScreenManager(Path file) {
+        this.file = file;
+        load();
+    }
+
+    // Screens in the world and dimension the client is in now
+    public List<WorldScreen> getCurrentScreens() {
+        String world = currentWorld();
+        String dimension = currentDimension();
+        List<WorldScreen> current = new ArrayList<>();
+        if (world == null || dimension == null) {
+            return current;
+        }
+        for (WorldScreen screen : screens) {
+            if (screen.isIn(world, dimension)) {
+                current.add(screen);
+            }
+        }
+        return current;
+    }
+
+    public void registerCommands(CommandDispatcher<FabricClientCommandSource> dispatcher) {
+        dispatcher.register(ClientCommandManager.literal("videoscreen")
+            .then(ClientCommandManager.literal("add")
+                .then(ClientCommandManager.argument("width", IntegerArgumentType.integer(1, MAX_SIZE))
+                    .then(ClientCommandManager.argument("height", IntegerArgumentType.integer(1, MAX_SIZE))
+                        .executes(context -> add(context.getSource(),
+                            IntegerArgumentType.getInteger(context, "width"),
+                            IntegerArgumentType.getInteger(context, "height"))))))
+            .then(ClientCommandManager.literal("remove")
+                .executes(context -> remove(context.getSource())))
+            .then(ClientCommandManager.literal("list")
+                .executes(context -> list(context.getSource()))));
+    }
+
+    // Places a screen whose bottom-left block is the one under the crosshair
+    private int add(FabricClientCommandSource source, int width, int height) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (!(client.crosshairTarget instanceof BlockHitResult hit) || hit.getType() != HitResult.Type.BLOCK) {
+            source.sendError(Text.literal("Look at the block for the screen's bottom-left corner"));
+            return 0;
+        }
+        Direction side = hit.getSide();
+        if (!side.getAxis().isHorizontal()) {
+            source.sendError(Text.literal("Video screens go on walls, not floors or ceilings"));
+            return 0;
+        }
+
+        VideoPlayer focused = VideoPlayerMod.getPlayerManager().getFocused();
+        int playerId = focused != null ? focused.getId() : 0;
+        BlockPos pos = hit.getBlockPos();
+        screens.add(new WorldScreen(currentWorld(), currentDimension(), pos.getX(), pos.getY(), pos.getZ(),
+            side, width, height, playerId));
+        save();
+        source.sendFeedback(Text.literal("Added a " + width + "x" + height + " video screen for player " + (playerId + 1)));
+        return 1;
+    }
+
+    // Removes the screen closest to the player, within 16 blocks
+    private int remove(FabricClientCommandSource source) {
+        Vec3d position = source.getPosition();
+        WorldScreen closest = null;
+        double closestDistance = 16 * 16;
+        for (WorldScreen screen : getCurrentScreens()) {
+            double distance = screen.getCenter().squaredDistanceTo(position);
+            if (distance < closestDistance) {
+                closest = screen;
+                closestDistance = distance;
+            }
+        }
+        if (closest == null) {
+            source.sendError(Text.literal("No video screen nearby"));
+            return 0;
+        }
+        screens.remove(closest);
+        save();
+        source.sendFeedback(Text.literal("Removed video screen"));
+        return 1;
+    }
+
+    private int list(FabricClientCommandSource source) {
+        List<WorldScreen> current = getCurrentScreens();
+        source.sendFeedback(Text.literal(current.size() + " video screen(s) here"));
+        for (WorldScreen screen : current) {
+            source.sendFeedback(Text.literal(String.format(" %dx%d at %d %d %d facing %s, player %d",
+                screen.getWidth(), screen.getHeight(), screen.x, screen.y, screen.z, screen.facing, screen.getPlayerId() + 1)));
+        }
+        return current.size();
+    }
+
+    // Singleplayer worlds by save name, servers by address
+    private static String currentWorld() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.getServer() != null) {
+            return "local:" + client.getServer().getSaveProperties().getLevelName();
+        }
+        if (client.getCurrentServerEntry() != null) {
+            return "server:" + client.getCurrentServerEntry().address;
+        }
+        return null;
+    }
+
+    private static String currentDimension() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        return client.world != null ? client.world.getRegistryKey().getValue().toString() : null;
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<WorldScreen> loaded = GSON.fromJson(reader, new TypeToken<List<WorldScreen>>() { }.getType());
+            if (loaded != null) {
+                screens.addAll(loaded);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Ignoring unreadable {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                GSON.toJson(new ArrayList<>(screens), writer);
+            }
+        } catch (Exception e) {
+            VideoPlayerMod.LOGGER.warn("Failed to save video screens: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.videoplayer;
+
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.LightmapTextureManager;
+import net.minecraft.client.render.OverlayTexture;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Matrix4f;
+
+import java.util.List;
+
+// Draws the in-world video screens. Every screen samples its player's one texture, so
+// a video shown on the HUD and on several walls is still decoded and uploaded once.
+// Each screen that passes the distance and frustum checks reports its projected pixel
+// size to the player, so the decode size follows the largest view (HUD, screen or
+// wall); when no view reports, the player's VisibilityGovernor pauses decoding.
+public class WorldScreenRenderer implements WorldRenderEvents.AfterEntities {
+    private static final double MAX_DISTANCE = Integer.getInteger("videoplayer.worldScreenDistance", 64);
+
+    private final WorldScreenManager screens;
+
+    public WorldScreenRenderer(WorldScreenManager screens) {
+        this.screens = screens;
+    }
+
+    @Override
+    public void afterEntities(WorldRenderContext context) {
+        List<WorldScreen> current = screens.getCurrentScreens();
+        VertexConsumerProvider consumers = context.consumers();
+        if (current.isEmpty() || consumers == null) {
+            return;
+        }
+        MinecraftClient client = MinecraftClient.getInstance();
+        VideoPlayerManager players = VideoPlayerMod.getPlayerManager();
+        Vec3d camera = context.camera().getPos();
+
+        // Pixels per block at distance 1 along the view axis
+        double fovRadians = Math.toRadians(client.options.getFov().getValue());
+        double pixelsPerUnit = client.getWindow().getFramebufferHeight() / (2.0 * Math.tan(fovRadians / 2.0));
+
+        MatrixStack matrices = context.matrixStack() != null ? context.matrixStack() : new MatrixStack();
+        for (WorldScreen screen : current) {
+            // Nothing to show until a window with that id is open
+            VideoPlayer player = players.getPlayer(screen.getPlayerId());
+            if (player == null) {
+                continue;
+            }
+
+            // Nothing is drawn from behind, too far away or off screen
+            Vec3d toCamera = camera.subtract(screen.getCenter());
+            double facing = toCamera.dotProduct(screen.getNormal());
+            double distance = toCamera.length();
+            if (facing <= 0 || distance > MAX_DISTANCE || !context.frustum().isVisible(screen.getBounds())) {
+                continue;
+            }
+
+            // Projected size: height shrinks with distance, width also with the viewing angle
+            double scale = pixelsPerUnit / Math.max(distance, 0.5);
+            int pixelHeight = (int) (screen.getHeight() * scale);
+            int pixelWidth = (int) (screen.getWidth() * scale * (facing / Math.max(distance, 1e-3)));
+            player.reportViewSize(Math.max(1, pixelWidth), Math.max(1, pixelHeight));
+
+            if (player.hasTexture()) {
+                drawQuad(matrices, consumers, screen, player, camera);
+            }
+        }
+    }
+
+    // Camera-relative quad, counter-clockwise seen from the front so back faces cull
+    private static void drawQuad(MatrixStack matrices, VertexConsumerProvider consumers, WorldScreen screen,
+                                 VideoPlayer player, Vec3d camera) {
+        Vec3d origin = screen.getOrigin().subtract(camera);
+        Vec3d right = screen.getRight().multiply(screen.getWidth());
+        Vec3d up = screen.getUp().multiply(screen.getHeight());
+        Vec3d normal = screen.getNormal();
+
+        VertexConsumer consumer = consumers.getBuffer(RenderLayer.getEntitySolid(player.getTextureIdentifier()));
+        MatrixStack.Entry entry = matrices.peek();
+        Matrix4f matrix = entry.getPositionMatrix();
+
+        vertex(consumer, entry, matrix, origin, normal, 0, 1);
+        vertex(consumer, entry, matrix, origin.add(right), normal, 1, 1);
+        vertex(consumer, entry, matrix, origin.add(right).add(up), normal, 1, 0);
+        vertex(consumer, entry, matrix, origin.add(up), normal, 0, 0);
+    }
+
+    private static void vertex(VertexConsumer consumer, MatrixStack.Entry entry, Matrix4f matrix, Vec3d pos, Vec3d normal, float u, float v) {
+        // Screens are lit from within, so always full brightness
+        consumer.vertex(matrix, (float) pos.x, (float) pos.y, (float) pos.z)
+            .color(-1)
+            .texture(u, v)
+            .overlay(OverlayTexture.DEFAULT_UV)
+            .light(LightmapTextureManager.MAX_LIGHT_COORDINATE)
+            .normal(entry, (float) normal.x, (float) normal.y, (float) normal.z);
+    }
+}
@@ -0,0 +1,18 @@
+package com.videoplayer.mixin;
+
+import com.videoplayer.VideoPlayerMod;
+import net.minecraft.client.render.GameRenderer;
+import net.minecraft.client.render.RenderTickCounter;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(GameRenderer.class)
+public class GameRendererMixin {
+    // Runs once per rendered frame, before any HUD or screen draws the video
+    @Inject(method = "render", at = @At("HEAD"))
+    private void videoplayer$onRenderStart(RenderTickCounter tickCounter, boolean tick, CallbackInfo ci) {
+        VideoPlayerMod.onRenderFrame();
+    }
+}
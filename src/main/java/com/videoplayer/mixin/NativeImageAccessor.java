@@ -0,0 +1,12 @@
+package com.videoplayer.mixin;
+
+import net.minecraft.client.texture.NativeImage;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(NativeImage.class)
+public interface NativeImageAccessor {
+    // Address of the image's native RGBA pixel memory
+    @Accessor("pointer")
+    long getPointer();
+}
@@ -0,0 +1,23 @@
+package com.videoplayer.mixin;
+
+import com.videoplayer.GameAudioOutput;
+import net.minecraft.client.sound.SoundEngine;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(SoundEngine.class)
+public class SoundEngineMixin {
+    // Video audio pumps call OpenAL from their own threads; keep them out before the context is destroyed
+    @Inject(method = "close", at = @At("HEAD"))
+    private void videoplayer$onClose(CallbackInfo ci) {
+        GameAudioOutput.onEngineClosing();
+    }
+
+    // Only reached once the new device and context are open and current
+    @Inject(method = "init", at = @At("TAIL"))
+    private void videoplayer$onInit(CallbackInfo ci) {
+        GameAudioOutput.onEngineStarted();
+    }
+}
@@ -0,0 +1,181 @@
+package com.videoplayer;
+
+import com.sun.jna.Pointer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALC10;
+import org.lwjgl.openal.ALCCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Plays a synthetic 48 kHz tone through OpenAL Soft's null backend (the test task sets
+// ALSOFT_DRIVERS=null), feeding the pump the way VLC's audio thread would, and checks
+// the audio clock and the underrun and overrun counts
+class GameAudioOutputTest {
+    private static final int RATE = GameAudioOutput.RATE;
+    private static final int BLOCK_SAMPLES = RATE / 100;
+    private static final int BLOCK_BYTES = BLOCK_SAMPLES * 4;
+    private static final long BLOCK_NANOS = 10_000_000L;
+    // VLC hands blocks over a little before they are due
+    private static final long LEAD_NANOS = 20_000_000L;
+    // Queue, mixer period and pump interval with room to spare; beyond this the pump is skipping
+    private static final double MAX_LATENCY_MILLIS = 150.0;
+    // The pump starts blocks up to 5 ms before they are due
+    private static final double MIN_LATENCY_MILLIS = -5.0;
+
+    private long tone;
+    private long device;
+    private long context;
+    private long nextPts;
+    private GameAudioOutput output;
+
+    @BeforeEach
+    void open() {
+        // 440 Hz, the same sample on both channels
+        tone = MemoryUtil.nmemAlloc(BLOCK_BYTES);
+        for (int i = 0; i < BLOCK_SAMPLES; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * 440 * i / RATE) * Short.MAX_VALUE / 2);
+            MemoryUtil.memPutShort(tone + i * 4L, sample);
+            MemoryUtil.memPutShort(tone + i * 4L + 2, sample);
+        }
+        openContext();
+        output = new GameAudioOutput("test", () -> 1.0);
+        nextPts = System.nanoTime() + LEAD_NANOS;
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        output.close();
+        Thread.sleep(50);
+        GameAudioOutput.onEngineClosing();
+        closeContext();
+        MemoryUtil.nmemFree(tone);
+    }
+
+    @Test
+    void steadyPlaybackHasNoUnderrunsOrOverruns() throws InterruptedException {
+        feed(1500);
+        assertClock();
+        assertEquals(0, output.getUnderruns());
+        assertEquals(0, output.getOverruns());
+    }
+
+    @Test
+    void clockRecoversAfterEngineReload() throws InterruptedException {
+        feed(500);
+
+        // What SoundEngineMixin reports around a sound reload on the render thread
+        GameAudioOutput.onEngineClosing();
+        closeContext();
+        feed(200);
+        openContext();
+        feed(1000);
+
+        assertClock();
+        // Audio delivered while there was no context is skipped, not piled up
+        assertEquals(0, output.getOverruns());
+        assertTrue(output.getBufferedMillis() < MAX_LATENCY_MILLIS, () -> output.getBufferedMillis() + " ms buffered");
+    }
+
+    @Test
+    void pauseAndSeekKeepTheClock() throws InterruptedException {
+        feed(500);
+
+        // VLC stops delivering while paused and shifts its schedule by the pause
+        output.pause(null, nextPts / 1000);
+        Thread.sleep(300);
+        nextPts += 300_000_000L;
+        output.resume(null, nextPts / 1000);
+        feed(800);
+        assertClock();
+
+        // A seek drops everything buffered and restarts the schedule
+        output.flush(null, nextPts / 1000);
+        nextPts = System.nanoTime() + LEAD_NANOS;
+        feed(800);
+        assertClock();
+
+        // Only the audio queued before the pause is left to play on resume, so it may run dry once
+        assertTrue(output.getUnderruns() <= 1, () -> output.getUnderruns() + " underruns");
+        assertEquals(0, output.getOverruns());
+    }
+
+    @Test
+    void pumpParksOnceDrainedAndWakesForMoreAudio() throws InterruptedException {
+        feed(300);
+        Thread pump = pumpThread();
+
+        // Parked without a timeout once the queue has played out
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (pump.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, pump.getState());
+        assertFalse(output.isClockValid(), "a drained source has no clock");
+
+        // The next block wakes it; the gap counts as one underrun
+        nextPts = System.nanoTime() + LEAD_NANOS;
+        feed(500);
+        assertClock();
+        assertEquals(1, output.getUnderruns());
+        assertEquals(0, output.getOverruns());
+    }
+
+    // Delivers tone blocks at their pts minus the lead, for the given wall time
+    private void feed(long millis) throws InterruptedException {
+        long end = System.nanoTime() + millis * 1_000_000L;
+        while (System.nanoTime() < end) {
+            long wait = nextPts - LEAD_NANOS - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                continue;
+            }
+            output.play(null, new Pointer(tone), BLOCK_SAMPLES, nextPts / 1000);
+            nextPts += BLOCK_NANOS;
+        }
+    }
+
+    private void assertClock() {
+        assertTrue(output.isClockValid(), "audio clock is not valid");
+        double latency = output.getLatencyMillis();
+        assertTrue(latency >= MIN_LATENCY_MILLIS && latency <= MAX_LATENCY_MILLIS,
+            () -> String.format("latency %.1f ms outside %.0f..%.0f ms", latency, MIN_LATENCY_MILLIS, MAX_LATENCY_MILLIS));
+    }
+
+    private static Thread pumpThread() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("Audio-Pump-test") && thread.isAlive()) {
+                return thread;
+            }
+        }
+        return fail("no pump thread");
+    }
+
+    private void openContext() {
+        device = ALC10.alcOpenDevice((ByteBuffer) null);
+        assertTrue(device != 0, "no OpenAL device; ALSOFT_DRIVERS=null selects the null backend");
+        ALCCapabilities capabilities = ALC.createCapabilities(device);
+        context = ALC10.alcCreateContext(device, (IntBuffer) null);
+        ALC10.alcMakeContextCurrent(context);
+        AL.createCapabilities(capabilities);
+        GameAudioOutput.onEngineStarted();
+    }
+
+    private void closeContext() {
+        ALC10.alcMakeContextCurrent(0);
+        ALC10.alcDestroyContext(context);
+        ALC10.alcCloseDevice(device);
+        context = 0;
+        device = 0;
+    }
+}
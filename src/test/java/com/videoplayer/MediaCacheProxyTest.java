@@ -0,0 +1,159 @@
+package com.videoplayer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Plays the proxy against a loopback server that answers range requests the way a
+// CDN does, and checks that what comes out of the proxy is byte for byte the upstream
+class MediaCacheProxyTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final int SEGMENT = SegmentCache.SEGMENT_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    private volatile byte[] upstream;
+    private HttpServer server;
+    private String upstreamUrl;
+    private MediaCacheProxy proxy;
+
+    @BeforeEach
+    void startUpstream() throws IOException {
+        // Two and a half segments, so the last one is short
+        upstream = content(SEGMENT * 2 + SEGMENT / 2, 1);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/video.mp4", this::serveUpstream);
+        server.start();
+        upstreamUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/video.mp4";
+    }
+
+    @AfterEach
+    void stop() {
+        if (proxy != null) {
+            proxy.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void servesRangesAcrossSegmentBoundaries() throws Exception {
+        proxy = new MediaCacheProxy(directory);
+        String url = proxy.register("https://example.com/watch|best", upstreamUrl);
+
+        assertArrayEquals(slice(10, 99), get(url, "bytes=10-99"));
+        // Ends in the second segment
+        assertArrayEquals(slice(SEGMENT - 100, SEGMENT + 99), get(url, "bytes=" + (SEGMENT - 100) + "-" + (SEGMENT + 99)));
+        // Open-ended, through the short last segment
+        assertArrayEquals(slice(SEGMENT * 2 - 5, upstream.length - 1), get(url, "bytes=" + (SEGMENT * 2 - 5) + "-"));
+        assertArrayEquals(upstream, get(url, null));
+        assertEquals(upstream.length, proxy.getBytesFromUpstream(), "each segment is downloaded once");
+    }
+
+    @Test
+    void restartServesFromWarmCacheWithoutUpstream() throws Exception {
+        proxy = new MediaCacheProxy(directory);
+        assertArrayEquals(upstream, get(proxy.register("https://example.com/watch|best", upstreamUrl), null));
+        proxy.close();
+
+        int requestsBefore = upstreamRequests.get();
+        proxy = new MediaCacheProxy(directory);
+        String url = proxy.register("https://example.com/watch|best", upstreamUrl);
+        assertArrayEquals(upstream, get(url, null));
+        assertArrayEquals(slice(SEGMENT + 7, SEGMENT + 7000), get(url, "bytes=" + (SEGMENT + 7) + "-" + (SEGMENT + 7000)));
+        assertEquals(requestsBefore, upstreamRequests.get(), "a warm cache needs no upstream requests");
+        assertEquals(0, proxy.getBytesFromUpstream());
+    }
+
+    @Test
+    void changedUpstreamDropsStaleSegments() throws Exception {
+        proxy = new MediaCacheProxy(directory);
+        String url = proxy.register("https://example.com/watch|best", upstreamUrl);
+        // Only the first segment gets cached
+        assertArrayEquals(slice(0, 999), get(url, "bytes=0-999"));
+
+        // Re-resolving handed out a different file under the same page and format
+        upstream = content(SEGMENT + SEGMENT / 3, 2);
+        url = proxy.register("https://example.com/watch|best", upstreamUrl);
+
+        // The first uncached segment notices the new length; that response is cut off
+        try {
+            get(url, "bytes=" + (SEGMENT + 10) + "-" + (SEGMENT + 20));
+        } catch (IOException e) {
+            // Expected: VLC reconnects the same way
+        }
+        assertArrayEquals(slice(0, 999), get(url, "bytes=0-999"), "old first segment must not be served");
+        assertArrayEquals(upstream, get(url, null));
+    }
+
+    private void serveUpstream(HttpExchange exchange) throws IOException {
+        upstreamRequests.incrementAndGet();
+        byte[] body = upstream;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range != null ? RANGE.matcher(range) : null;
+        try (exchange) {
+            if (matcher == null || !matcher.matches()) {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+            int start = Integer.parseInt(matcher.group(1));
+            int end = matcher.group(2).isEmpty() ? body.length - 1 : Math.min(body.length - 1, Integer.parseInt(matcher.group(2)));
+            if (start > end) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + body.length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+            exchange.sendResponseHeaders(206, end - start + 1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, start, end - start + 1);
+            }
+        }
+    }
+
+    private byte[] get(String url, String range) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+        if (range != null) {
+            request.header("Range", range);
+        }
+        HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertTrue(response.statusCode() == (range != null ? 206 : 200), () -> "status " + response.statusCode());
+        return response.body();
+    }
+
+    private byte[] slice(int start, int end) {
+        return Arrays.copyOfRange(upstream, start, end + 1);
+    }
+
+    private static byte[] content(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,138 @@
+package com.videoplayer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives the queue against a stub target that prepares instantly and only finishes
+// a video when told to, and a resolver that maps page URLs without any process
+class PlaylistQueueTest {
+    private final StubTarget target = new StubTarget();
+    private final Map<String, AtomicInteger> resolves = new ConcurrentHashMap<>();
+    private final PlaylistQueue queue = new PlaylistQueue(target, this::resolve);
+
+    @AfterEach
+    void close() {
+        queue.close();
+    }
+
+    @Test
+    void localFilesArePreparedAheadAndAdvanceOnFinish() throws Exception {
+        queue.add("/videos/a.mp4");
+        queue.add("/videos/b.mp4");
+        queue.add("/videos/c.mp4");
+        waitFor(() -> target.played.contains("/videos/a.mp4"));
+        waitFor(() -> target.prepared.size() == 3);
+        assertEquals(List.of("/videos/a.mp4", "/videos/b.mp4", "/videos/c.mp4"), target.prepared);
+
+        PlaylistQueue.Entry next = queue.getEntries().get(1);
+        assertEquals(PlaylistQueue.State.READY, next.getState());
+        assertEquals(640, next.getWidth());
+        assertEquals(360, next.getHeight());
+
+        target.finish();
+        waitFor(() -> target.played.contains("/videos/b.mp4"));
+        assertEquals(1, queue.getCurrentIndex());
+        assertEquals(3, target.prepared.size(), "an entry prepared ahead is not prepared again");
+    }
+
+    @Test
+    void urlIsResolvedBeforeTheCurrentEntryFinishes() throws Exception {
+        queue.add("/videos/a.mp4");
+        queue.add("https://www.example.com/watch?v=1");
+        waitFor(() -> queue.getEntries().get(1).getState() == PlaylistQueue.State.READY);
+        assertEquals("https://cdn.example.com/1", queue.getEntries().get(1).getMrl());
+        assertEquals(List.of("/videos/a.mp4"), target.played);
+
+        target.finish();
+        waitFor(() -> target.played.size() == 2);
+        assertEquals("https://cdn.example.com/1", target.played.get(1));
+        assertEquals(1, resolves.get("https://www.example.com/watch?v=1").get());
+    }
+
+    @Test
+    void unresolvableEntryIsSkipped() throws Exception {
+        queue.add("/videos/a.mp4");
+        queue.add("https://www.example.com/watch?v=missing");
+        queue.add("/videos/c.mp4");
+        waitFor(() -> target.played.size() == 1);
+
+        target.finish();
+        waitFor(() -> target.played.size() == 2);
+        assertEquals("/videos/c.mp4", target.played.get(1));
+        assertEquals(PlaylistQueue.State.FAILED, queue.getEntries().get(1).getState());
+        assertEquals(2, queue.getCurrentIndex());
+    }
+
+    @Test
+    void directlyLoadedVideoDoesNotAdvance() throws Exception {
+        queue.add("/videos/a.mp4");
+        queue.add("/videos/b.mp4");
+        waitFor(() -> target.played.size() == 1);
+
+        // Something else was loaded over the playlist and then finished
+        target.currentMrl = "/videos/other.mp4";
+        target.finish();
+        Thread.sleep(100);
+        assertEquals(0, queue.getCurrentIndex());
+        assertEquals(1, target.played.size());
+    }
+
+    private String resolve(String pageUrl) {
+        resolves.computeIfAbsent(pageUrl, url -> new AtomicInteger()).incrementAndGet();
+        return pageUrl.contains("missing") ? null : "https://cdn.example.com/" + pageUrl.substring(pageUrl.indexOf("v=") + 2);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class StubTarget implements PlaylistQueue.Target {
+        final List<String> prepared = new CopyOnWriteArrayList<>();
+        final List<String> played = new CopyOnWriteArrayList<>();
+        final List<Runnable> finishedListeners = new CopyOnWriteArrayList<>();
+        volatile String currentMrl;
+
+        @Override
+        public void addFinishedListener(Runnable listener) {
+            finishedListeners.add(listener);
+        }
+
+        @Override
+        public String getCurrentMrl() {
+            return currentMrl;
+        }
+
+        @Override
+        public PlaylistQueue.Prepared prepare(String mrl) {
+            prepared.add(mrl);
+            return new PlaylistQueue.Prepared(null, 640, 360, 1000);
+        }
+
+        @Override
+        public void playPrepared(String mrl, PlaylistQueue.Prepared prepared) {
+            currentMrl = mrl;
+            played.add(mrl);
+        }
+
+        // What VideoPlayer does when VLC reports the end of the media
+        void finish() {
+            for (Runnable listener : finishedListeners) {
+                listener.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.videoplayer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SegmentCacheTest {
+    private static final int SIZE = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsLeastRecentlyUsedFirst() throws Exception {
+        SegmentCache cache = new SegmentCache(directory, SIZE * 2);
+        cache.put("a", 0, new byte[SIZE], SIZE);
+        cache.put("a", 1, new byte[SIZE], SIZE);
+        assertNotNull(cache.map("a", 0));
+        cache.put("a", 2, new byte[SIZE], SIZE);
+
+        assertNotNull(cache.map("a", 0));
+        assertNull(cache.map("a", 1));
+        assertFalse(Files.exists(directory.resolve("a").resolve("1.seg")));
+        assertEquals(SIZE * 2, cache.getTotalBytes());
+    }
+
+    @Test
+    void segmentThatCannotBeDeletedStaysCounted() throws Exception {
+        SegmentCache cache = new SegmentCache(directory, SIZE * 2);
+        cache.put("a", 0, new byte[SIZE], SIZE);
+        cache.put("a", 1, new byte[SIZE], SIZE);
+
+        // Stands in for a file Windows won't delete while it is mapped: a non-empty directory
+        Path blocked = directory.resolve("a").resolve("0.seg");
+        Files.delete(blocked);
+        Files.createDirectory(blocked);
+        Files.writeString(blocked.resolve("reader"), "mapped");
+
+        // Segment 0 is evicted but stays on disk, so segment 1 has to go as well
+        cache.put("a", 2, new byte[SIZE], SIZE);
+        assertNull(cache.map("a", 0));
+        assertNull(cache.map("a", 1));
+        assertNotNull(cache.map("a", 2));
+        assertEquals(SIZE * 2, cache.getTotalBytes(), "the undeleted segment is still counted");
+
+        // Once the reader lets go, the next eviction deletes it and stops counting it
+        Files.delete(blocked.resolve("reader"));
+        cache.put("a", 3, new byte[SIZE], SIZE);
+        assertFalse(Files.exists(blocked));
+        assertNotNull(cache.map("a", 2));
+        assertNotNull(cache.map("a", 3));
+        assertEquals(SIZE * 2, cache.getTotalBytes());
+    }
+
+    @Test
+    void removeMediaOnlyDropsThatMedia() throws Exception {
+        SegmentCache cache = new SegmentCache(directory, SIZE * 10);
+        cache.put("a", 0, new byte[SIZE], SIZE);
+        cache.put("b", 0, new byte[SIZE], SIZE);
+        cache.removeMedia("a");
+
+        assertNull(cache.map("a", 0));
+        assertNotNull(cache.map("b", 0));
+        assertEquals(SIZE, cache.getTotalBytes());
+    }
+
+    @Test
+    void restartPicksUpExistingSegments() throws Exception {
+        new SegmentCache(directory, SIZE * 10).put("a", 0, new byte[SIZE], SIZE);
+        SegmentCache reopened = new SegmentCache(directory, SIZE * 10);
+        assertEquals(SIZE, reopened.getTotalBytes());
+        assertNotNull(reopened.map("a", 0));
+    }
+}
@@ -0,0 +1,82 @@
+package com.videoplayer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Resolves through a shell script standing in for yt-dlp, which logs every run
+@DisabledOnOs(OS.WINDOWS)
+class StreamResolverTest {
+    private static final String PAGE = "https://www.example.com/watch?v=abc";
+    private static final String STREAM = "https://cdn.example.com/videoplayback?id=abc";
+
+    @TempDir
+    Path directory;
+
+    private Path calls;
+    private StreamResolver resolver;
+
+    @BeforeEach
+    void createStub() throws IOException {
+        calls = directory.resolve("calls.log");
+        Path stub = directory.resolve("yt-dlp");
+        Files.writeString(stub, String.join("\n",
+            "#!/bin/sh",
+            "echo \"$@\" >> '" + calls + "'",
+            "for last; do :; done",
+            "case \"$last\" in *missing*) echo 'ERROR: Video unavailable' >&2; exit 1;; esac",
+            "echo '" + STREAM + "'",
+            ""));
+        stub.toFile().setExecutable(true);
+
+        // Plain extraction already known to work for the site, so each resolve runs the stub once
+        Files.writeString(directory.resolve("resolver-strategies.json"), "{\"example.com\":\"none\"}");
+        resolver = new StreamResolver(directory, List.of(stub.toString()));
+    }
+
+    @AfterEach
+    void close() {
+        resolver.close();
+    }
+
+    @Test
+    void secondResolveIsServedFromCache() throws IOException {
+        assertEquals(STREAM, resolver.resolve(PAGE, StreamResolver.DEFAULT_FORMAT));
+        assertEquals(1, runs());
+
+        assertEquals(STREAM, resolver.resolve(PAGE, StreamResolver.DEFAULT_FORMAT));
+        assertEquals(1, runs(), "a cached URL must not start the resolver again");
+    }
+
+    @Test
+    void cacheHitSurvivesRestart() throws IOException {
+        assertEquals(STREAM, resolver.resolve(PAGE, StreamResolver.DEFAULT_FORMAT));
+        resolver.close();
+
+        resolver = new StreamResolver(directory, List.of(directory.resolve("yt-dlp").toString()));
+        assertEquals(STREAM, resolver.resolve(PAGE, StreamResolver.DEFAULT_FORMAT));
+        assertEquals(1, runs());
+    }
+
+    @Test
+    void failedResolveIsNotCached() {
+        String missing = "https://www.example.com/watch?v=missing";
+        assertNull(resolver.resolve(missing, StreamResolver.DEFAULT_FORMAT));
+        assertNull(resolver.getCache().get(missing, StreamResolver.DEFAULT_FORMAT));
+    }
+
+    private long runs() throws IOException {
+        return Files.isRegularFile(calls) ? Files.readAllLines(calls).size() : 0;
+    }
+}
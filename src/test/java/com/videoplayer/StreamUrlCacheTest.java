@@ -0,0 +1,112 @@
+package com.videoplayer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamUrlCacheTest {
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private StreamUrlCache cache;
+
+    @AfterEach
+    void close() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    void expiryComesFromTheSignedUrl() {
+        long now = System.currentTimeMillis();
+        long expireSeconds = now / 1000 + 3600;
+        long expected = expireSeconds * 1000 - 2 * MINUTE;
+
+        assertEquals(expected, StreamUrlCache.expiryOf("https://cdn.example.com/videoplayback?id=1&expire=" + expireSeconds + "&sig=x", now));
+        assertEquals(expected, StreamUrlCache.expiryOf("https://cdn.example.com/videoplayback/expire/" + expireSeconds + "/id/1", now));
+        // No expiry, one already past, and one absurdly far out all fall back to the TTL
+        assertEquals(now + 60 * MINUTE, StreamUrlCache.expiryOf("https://cdn.example.com/video.mp4", now));
+        assertEquals(now + 60 * MINUTE, StreamUrlCache.expiryOf("https://cdn.example.com/v?expire=" + (now / 1000 - 60), now));
+        assertEquals(now + 60 * MINUTE, StreamUrlCache.expiryOf("https://cdn.example.com/v?expire=" + (now / 1000 + 30L * 24 * 3600), now));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        cache = new StreamUrlCache(directory.resolve("cache.json"));
+        for (int i = 0; i < 64; i++) {
+            cache.put(page(i), "best", stream(i));
+        }
+        // Touching the oldest entry makes the second one the eviction candidate
+        assertEquals(stream(0), cache.get(page(0), "best"));
+        cache.put(page(64), "best", stream(64));
+
+        assertEquals(64, cache.size());
+        assertEquals(stream(0), cache.get(page(0), "best"));
+        assertNull(cache.get(page(1), "best"));
+        assertEquals(stream(64), cache.get(page(64), "best"));
+    }
+
+    @Test
+    void survivesRestart() {
+        Path file = directory.resolve("cache.json");
+        cache = new StreamUrlCache(file);
+        cache.put(page(1), "best", stream(1));
+        cache.put(page(2), "worst", stream(2));
+        cache.close();
+
+        cache = new StreamUrlCache(file);
+        assertEquals(2, cache.size());
+        assertEquals(stream(1), cache.get(page(1), "best"));
+        // Same page typed slightly differently
+        assertEquals(stream(2), cache.get(" " + page(2) + " ", "worst"));
+        assertNull(cache.get(page(2), "best"));
+    }
+
+    @Test
+    void invalidatedStreamIsForgotten() {
+        cache = new StreamUrlCache(directory.resolve("cache.json"));
+        cache.put(page(1), "best", stream(1));
+        assertTrue(cache.invalidateStream(stream(1)));
+        assertNull(cache.get(page(1), "best"));
+    }
+
+    @Test
+    void refreshesShortlyBeforeExpiry() throws Exception {
+        cache = new StreamUrlCache(directory.resolve("cache.json"));
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        String fresh = "https://cdn.example.com/videoplayback?id=1&expire=" + (nowSeconds + 6 * 3600);
+        CountDownLatch refreshed = new CountDownLatch(1);
+        cache.setRefresher((pageUrl, format) -> {
+            refreshed.countDown();
+            return fresh;
+        });
+
+        // Inside the refresh lead already, so the refresh is due right away
+        cache.put(page(1), "best", "https://cdn.example.com/videoplayback?id=1&expire=" + (nowSeconds + 11 * 60));
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!fresh.equals(cache.get(page(1), "best")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(fresh, cache.get(page(1), "best"));
+    }
+
+    private static String page(int i) {
+        return "https://www.example.com/watch?v=" + i;
+    }
+
+    private static String stream(int i) {
+        return "https://cdn.example.com/videoplayback?id=" + i;
+    }
+}